@@ -0,0 +1,123 @@
+package activitytracker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.function.IntFunction;
+
+/**
+ * A benchmark for ingesting session events in batches with
+ * {@link simpleMap#putAll}, {@link simpleMap#getAll} and
+ * {@link simpleMap#removeAll} against one {@code put}, {@code get} or
+ * {@code remove} call per key, for several batch sizes.
+ */
+public class batchBenchmark {
+
+    private static final int EVENT_COUNT = 1_000_000;
+    private static final int[] BATCH_SIZES = { 16, 256, 4_096, 65_536 };
+
+    private static List<String> generateKeys(int n) {
+        List<String> keys = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            keys.add("student" + (i % 1000) + "_" + UUID.randomUUID());
+        }
+        return keys;
+    }
+
+    public static void main(String[] args) {
+        List<String> keys = generateKeys(EVENT_COUNT);
+        List<Integer> values = new ArrayList<>(EVENT_COUNT);
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            values.add(i);
+        }
+
+        List<String> names = List.of("LinearProbing", "SeparateChaining", "FlatLinearProbing");
+        List<IntFunction<simpleMap<String, Integer>>> factories = List.of(
+                linearProbingHashTable::new,
+                separateChainingHashTable::new,
+                flatLinearProbingHashTable::new);
+
+        System.out.println("Map,BatchSize,PutThroughput(ops/s),GetThroughput(ops/s),RemoveThroughput(ops/s),"
+                + "PutSpeedup,GetSpeedup,RemoveSpeedup");
+        for (int m = 0; m < names.size(); m++) {
+            run(factories.get(m), keys, values, 1); // Warm up
+            long[] perKey = run(factories.get(m), keys, values, 1);
+            print(names.get(m), "PerKey", perKey, perKey);
+            for (int batchSize : BATCH_SIZES) {
+                run(factories.get(m), keys, values, batchSize); // Warm up
+                print(names.get(m), String.valueOf(batchSize), run(factories.get(m), keys, values, batchSize), perKey);
+            }
+        }
+    }
+
+    /**
+     * Fills a new map with every event, looks every key up and removes them
+     * all again.
+     *
+     * @param batchSize keys per batch call, or 1 for one call per key
+     * @return the put, get and remove times in nanoseconds
+     */
+    private static long[] run(IntFunction<simpleMap<String, Integer>> factory, List<String> keys,
+            List<Integer> values, int batchSize) {
+        simpleMap<String, Integer> map = factory.apply(16);
+        long checksum = 0;
+
+        long start = System.nanoTime();
+        if (batchSize == 1) {
+            for (int i = 0; i < keys.size(); i++) {
+                map.put(keys.get(i), values.get(i));
+            }
+        } else {
+            for (int i = 0; i < keys.size(); i += batchSize) {
+                int end = Math.min(i + batchSize, keys.size());
+                map.putAll(keys.subList(i, end), values.subList(i, end));
+            }
+        }
+        long putTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        if (batchSize == 1) {
+            for (String k : keys) {
+                checksum += map.get(k);
+            }
+        } else {
+            for (int i = 0; i < keys.size(); i += batchSize) {
+                for (Integer v : map.getAll(keys.subList(i, Math.min(i + batchSize, keys.size())))) {
+                    checksum += v;
+                }
+            }
+        }
+        long getTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        if (batchSize == 1) {
+            for (String k : keys) {
+                checksum -= map.remove(k);
+            }
+        } else {
+            for (int i = 0; i < keys.size(); i += batchSize) {
+                for (Integer v : map.removeAll(keys.subList(i, Math.min(i + batchSize, keys.size())))) {
+                    checksum -= v;
+                }
+            }
+        }
+        long removeTime = System.nanoTime() - start;
+
+        if (checksum != 0 || !map.isEmpty()) {
+            throw new IllegalStateException("Batch of " + batchSize + " lost mappings");
+        }
+        return new long[] { putTime, getTime, removeTime };
+    }
+
+    private static void print(String name, String batch, long[] times, long[] perKey) {
+        System.out.printf(Locale.US, "%s,%s,%.0f,%.0f,%.0f,%.2f,%.2f,%.2f\n",
+                name, batch,
+                EVENT_COUNT / (times[0] / 1e9),
+                EVENT_COUNT / (times[1] / 1e9),
+                EVENT_COUNT / (times[2] / 1e9),
+                (double) perKey[0] / times[0],
+                (double) perKey[1] / times[1],
+                (double) perKey[2] / times[2]);
+    }
+}
@@ -1,5 +1,7 @@
 package activitytracker;
 
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
@@ -19,8 +21,23 @@ public class benchmark {
         return keys;
     }
 
+    /**
+     * Returns the total number of collections and milliseconds spent in them
+     * across every collector since the JVM started.
+     */
+    private static long[] gcTotals() {
+        long count = 0, time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return new long[] { count, time };
+    }
+
     private static void benchmark(String name, simpleMap<String, Integer> map, List<String> baseKeys,
             List<String> sampleKeys) {
+        long[] gcBefore = gcTotals();
+
         // Prepopulate map with baseKeys
         for (String k : baseKeys) {
             map.put(k, 1);
@@ -47,17 +64,20 @@ public class benchmark {
         }
         long removeTime = System.nanoTime() - start;
 
-        System.out.printf(Locale.US, "%s,%d,%.3f,%.3f,%.3f\n",
+        long[] gcAfter = gcTotals();
+        System.out.printf(Locale.US, "%s,%d,%.3f,%.3f,%.3f,%d,%d\n",
                 name, sampleKeys.size(),
                 insertTime / 1e6,
                 getTime / 1e6,
-                removeTime / 1e6);
+                removeTime / 1e6,
+                gcAfter[0] - gcBefore[0],
+                gcAfter[1] - gcBefore[1]);
     }
 
     public static void main(String[] args) {
         List<String> allKeys = generateKeys(MAX_KEYS);
 
-        System.out.println("MapType,SampleSize,InsertTime(ms),GetTime(ms),RemoveTime(ms)");
+        System.out.println("MapType,SampleSize,InsertTime(ms),GetTime(ms),RemoveTime(ms),GcCount,GcTime(ms)");
 
         for (int sampleSize : SAMPLE_SIZES) {
             int baseSize = MAX_KEYS - sampleSize;
@@ -76,5 +96,36 @@ public class benchmark {
             simpleMap<String, Integer> separateChainingMap = new separateChainingHashTable<>(2 * MAX_KEYS);
             benchmark("SeparateChaining", separateChainingMap, baseKeys, sampleKeys);
         }
+
+        for (int sampleSize : SAMPLE_SIZES) {
+            int baseSize = MAX_KEYS - sampleSize;
+            List<String> baseKeys = allKeys.subList(0, baseSize);
+            List<String> sampleKeys = allKeys.subList(baseSize, MAX_KEYS);
+
+            simpleMap<String, Integer> flatLinearProbingMap = new flatLinearProbingHashTable<>(2 * MAX_KEYS);
+            benchmark("FlatLinearProbing", flatLinearProbingMap, baseKeys, sampleKeys);
+        }
+
+        for (int sampleSize : SAMPLE_SIZES) {
+            int baseSize = MAX_KEYS - sampleSize;
+            List<String> baseKeys = allKeys.subList(0, baseSize);
+            List<String> sampleKeys = allKeys.subList(baseSize, MAX_KEYS);
+
+            // Robin Hood keeps probe lengths short at 0.9 load, so it is sized
+            // for the keys rather than presized to twice their number.
+            simpleMap<String, Integer> robinHoodMap = new linearProbingHashTable<>((int) (MAX_KEYS / 0.9) + 1, 0.9,
+                    linearProbingHashTable.Probing.ROBIN_HOOD);
+            benchmark("RobinHood", robinHoodMap, baseKeys, sampleKeys);
+        }
+
+        for (int sampleSize : SAMPLE_SIZES) {
+            int baseSize = MAX_KEYS - sampleSize;
+            List<String> baseKeys = allKeys.subList(0, baseSize);
+            List<String> sampleKeys = allKeys.subList(baseSize, MAX_KEYS);
+
+            try (offHeapStringMap offHeapMap = new offHeapStringMap(2 * MAX_KEYS)) {
+                benchmark("OffHeap", offHeapMap, baseKeys, sampleKeys);
+            }
+        }
     }
 }
\ No newline at end of file
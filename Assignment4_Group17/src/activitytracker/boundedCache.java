@@ -0,0 +1,471 @@
+package activitytracker;
+
+import java.util.Collection;
+import java.util.function.BiConsumer;
+
+/**
+ * A cache holding at most a fixed number of mappings in front of a larger
+ * backing {@link simpleMap}. Lookups that miss are read from the backing map
+ * and the result is cached; writes go through to the backing map and are
+ * cached too. When the cache is full it evicts by its {@link Policy}.
+ * <p>
+ * As a {@code simpleMap} the cache answers for the backing map: {@link #size()}
+ * and the views are the backing map's, so the backing map must only be
+ * modified through the cache or cached values may be stale. Null values are
+ * written through but never cached. Like the tables, the cache is not
+ * thread-safe.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ */
+public class boundedCache<K, V> implements simpleMap<K, V> {
+
+    /**
+     * How the cache picks the mapping to evict.
+     */
+    public enum Policy {
+        /** Evicts the least recently used mapping. */
+        LRU,
+        /**
+         * W-TinyLFU: new mappings enter a small LRU window, and a mapping
+         * leaving the window only replaces the main area's next victim if it
+         * has been accessed more often. Access counts are kept approximately
+         * in a count-min sketch that is halved periodically, so a one-off scan
+         * cannot flush the mappings that are used again and again. The main
+         * area is a segmented LRU whose protected segment holds mappings hit
+         * since they were admitted.
+         */
+        W_TINY_LFU
+    }
+
+    private static final double WINDOW_RATIO = 0.01;
+    private static final double PROTECTED_RATIO = 0.8;
+    private static final double INDEX_LOAD_FACTOR = 0.75;
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    /**
+     * A cached mapping, linked into the access order of the segment that
+     * holds it.
+     */
+    private static final class Node<K, V> {
+        final K key;
+        final int hash;
+        V value;
+        int segment;
+        Node<K, V> prev;
+        Node<K, V> next;
+
+        Node(K key, int hash, V value) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+        }
+    }
+
+    /**
+     * A doubly linked list of nodes from least to most recently used, with a
+     * sentinel so unlinking needs no null checks.
+     */
+    private static final class AccessOrder<K, V> {
+        private final Node<K, V> head = new Node<>(null, 0, null);
+        int size;
+
+        AccessOrder() {
+            head.prev = head;
+            head.next = head;
+        }
+
+        void addLast(Node<K, V> node) {
+            node.prev = head.prev;
+            node.next = head;
+            head.prev.next = node;
+            head.prev = node;
+            size++;
+        }
+
+        void remove(Node<K, V> node) {
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+            node.prev = null;
+            node.next = null;
+            size--;
+        }
+
+        void moveToLast(Node<K, V> node) {
+            remove(node);
+            addLast(node);
+        }
+
+        /** @return the least recently used node, or null if empty */
+        Node<K, V> first() {
+            return head.next == head ? null : head.next;
+        }
+    }
+
+    /**
+     * A count-min sketch of access frequencies: four rows of 4-bit counters,
+     * sixteen to a {@code long}. A key's frequency is the smallest of its four
+     * counters. Once the sketch has counted ten accesses per cached mapping
+     * every counter is halved, so old popularity fades.
+     */
+    private static final class FrequencySketch {
+        private static final long[] SEEDS = {
+                0xC3A5C85C97CB3127L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL, 0xCBF29CE484222325L };
+        private static final long RESET_MASK = 0x7777777777777777L;
+        private static final int MAX_COUNT = 15;
+
+        private final long[] table;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int maximumSize) {
+            table = new long[hasher.powerOfTwoAtLeast(Math.max(maximumSize, 16))];
+            sampleSize = 10 * maximumSize;
+        }
+
+        /**
+         * @param hash the mixed hash of a key
+         * @return the estimated number of recent accesses, at most 15
+         */
+        int frequency(int hash) {
+            int min = MAX_COUNT;
+            for (int row = 0; row < SEEDS.length; row++) {
+                long h = spread(hash, row);
+                min = Math.min(min, (int) (table[index(h)] >>> shift(h)) & MAX_COUNT);
+            }
+            return min;
+        }
+
+        /**
+         * Counts an access to a key.
+         *
+         * @param hash the mixed hash of the key
+         */
+        void increment(int hash) {
+            boolean added = false;
+            for (int row = 0; row < SEEDS.length; row++) {
+                long h = spread(hash, row);
+                int index = index(h);
+                int shift = shift(h);
+                if (((table[index] >>> shift) & MAX_COUNT) < MAX_COUNT) {
+                    table[index] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = (table[i] >>> 1) & RESET_MASK;
+                }
+                additions /= 2;
+            }
+        }
+
+        private static long spread(int hash, int row) {
+            long h = (hash + SEEDS[row]) * SEEDS[row];
+            return h ^ (h >>> 32);
+        }
+
+        private int index(long h) {
+            return (int) h & (table.length - 1);
+        }
+
+        private static int shift(long h) {
+            return ((int) (h >>> 40) & 15) << 2;
+        }
+    }
+
+    private final simpleMap<K, V> backing;
+    private final int maximumSize;
+    private final Policy policy;
+    private final linearProbingHashTable<K, Node<K, V>> index;
+
+    // LRU keeps everything in the window; W-TinyLFU uses all three segments
+    private final AccessOrder<K, V> window = new AccessOrder<>();
+    private final AccessOrder<K, V> probation = new AccessOrder<>();
+    private final AccessOrder<K, V> protectedSegment = new AccessOrder<>();
+    private final int windowMax;
+    private final int mainMax;
+    private final int protectedMax;
+    private final FrequencySketch sketch;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Constructs a W-TinyLFU cache in front of a backing map.
+     *
+     * @param backing     the map holding every mapping
+     * @param maximumSize the most mappings the cache holds
+     */
+    public boundedCache(simpleMap<K, V> backing, int maximumSize) {
+        this(backing, maximumSize, Policy.W_TINY_LFU);
+    }
+
+    /**
+     * Constructs a cache in front of a backing map.
+     *
+     * @param backing     the map holding every mapping
+     * @param maximumSize the most mappings the cache holds
+     * @param policy      how the cache picks the mapping to evict
+     */
+    public boundedCache(simpleMap<K, V> backing, int maximumSize, Policy policy) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Maximum size must be positive");
+        }
+        this.backing = backing;
+        this.maximumSize = maximumSize;
+        this.policy = policy;
+        // Robin Hood removal shifts entries back instead of leaving tombstones,
+        // so constant eviction never pushes the index past its load factor
+        this.index = new linearProbingHashTable<>((int) Math.ceil((maximumSize + 1) / INDEX_LOAD_FACTOR) + 1,
+                INDEX_LOAD_FACTOR, linearProbingHashTable.Probing.ROBIN_HOOD);
+        if (policy == Policy.LRU) {
+            windowMax = maximumSize;
+            mainMax = 0;
+            protectedMax = 0;
+            sketch = null;
+        } else {
+            windowMax = Math.max(1, (int) (maximumSize * WINDOW_RATIO));
+            mainMax = maximumSize - windowMax;
+            protectedMax = (int) (mainMax * PROTECTED_RATIO);
+            sketch = new FrequencySketch(maximumSize);
+        }
+    }
+
+    /**
+     * Returns the value of a key, from the cache if it holds the key and from
+     * the backing map otherwise. A non-null value read from the backing map is
+     * cached, which may evict another mapping.
+     *
+     * @param k the key
+     * @return the value, or {@code null} if the backing map has none
+     */
+    @Override
+    public V get(K k) {
+        int hash = hasher.fmix(k.hashCode());
+        if (sketch != null) {
+            sketch.increment(hash);
+        }
+        Node<K, V> node = index.get(k);
+        if (node != null) {
+            hits++;
+            onAccess(node);
+            return node.value;
+        }
+        misses++;
+        V value = backing.get(k);
+        if (value != null) {
+            admit(new Node<>(k, hash, value));
+        }
+        return value;
+    }
+
+    /**
+     * Writes a mapping to the backing map and caches it, or drops it from the
+     * cache if the value is null.
+     *
+     * @param k the key
+     * @param v the value
+     * @return the backing map's previous value for the key
+     */
+    @Override
+    public V put(K k, V v) {
+        V previous = backing.put(k, v);
+        int hash = hasher.fmix(k.hashCode());
+        if (sketch != null) {
+            sketch.increment(hash);
+        }
+        Node<K, V> node = index.get(k);
+        if (v == null) {
+            if (node != null) {
+                discard(node);
+            }
+        } else if (node != null) {
+            node.value = v;
+            onAccess(node);
+        } else {
+            admit(new Node<>(k, hash, v));
+        }
+        return previous;
+    }
+
+    /**
+     * Removes a mapping from the backing map and the cache.
+     *
+     * @param k the key
+     * @return the backing map's previous value for the key
+     */
+    @Override
+    public V remove(K k) {
+        Node<K, V> node = index.get(k);
+        if (node != null) {
+            discard(node);
+        }
+        return backing.remove(k);
+    }
+
+    /**
+     * Moves a node that was just read or written to the most recently used
+     * end of its segment. Under W-TinyLFU a probation node is promoted to the
+     * protected segment, which demotes the protected segment's least recently
+     * used node if it is full.
+     */
+    private void onAccess(Node<K, V> node) {
+        switch (node.segment) {
+            case WINDOW:
+                window.moveToLast(node);
+                break;
+            case PROBATION:
+                probation.remove(node);
+                node.segment = PROTECTED;
+                protectedSegment.addLast(node);
+                if (protectedSegment.size > protectedMax) {
+                    Node<K, V> demoted = protectedSegment.first();
+                    protectedSegment.remove(demoted);
+                    demoted.segment = PROBATION;
+                    probation.addLast(demoted);
+                }
+                break;
+            default:
+                protectedSegment.moveToLast(node);
+                break;
+        }
+    }
+
+    /**
+     * Caches a new node in the window, then evicts if the cache is over its
+     * maximum size.
+     */
+    private void admit(Node<K, V> node) {
+        index.put(node.key, node);
+        node.segment = WINDOW;
+        window.addLast(node);
+        if (window.size <= windowMax) {
+            return;
+        }
+
+        Node<K, V> candidate = window.first();
+        window.remove(candidate);
+        if (policy == Policy.LRU) {
+            evict(candidate);
+            return;
+        }
+        if (probation.size + protectedSegment.size < mainMax) {
+            candidate.segment = PROBATION;
+            probation.addLast(candidate);
+            return;
+        }
+        Node<K, V> victim = probation.first();
+        AccessOrder<K, V> victimSegment = probation;
+        if (victim == null) {
+            victim = protectedSegment.first();
+            victimSegment = protectedSegment;
+        }
+        if (victim == null || sketch.frequency(victim.hash) >= sketch.frequency(candidate.hash)) {
+            evict(candidate);
+        } else {
+            victimSegment.remove(victim);
+            evict(victim);
+            candidate.segment = PROBATION;
+            probation.addLast(candidate);
+        }
+    }
+
+    /** Drops a node already unlinked from its segment and counts it. */
+    private void evict(Node<K, V> node) {
+        index.remove(node.key);
+        evictions++;
+    }
+
+    /** Drops a node from the cache without counting an eviction. */
+    private void discard(Node<K, V> node) {
+        segmentOf(node).remove(node);
+        index.remove(node.key);
+    }
+
+    private AccessOrder<K, V> segmentOf(Node<K, V> node) {
+        switch (node.segment) {
+            case WINDOW:
+                return window;
+            case PROBATION:
+                return probation;
+            default:
+                return protectedSegment;
+        }
+    }
+
+    /** @return the number of mappings in the backing map */
+    @Override
+    public int size() {
+        return backing.size();
+    }
+
+    /** @return true if the backing map is empty */
+    @Override
+    public boolean isEmpty() {
+        return backing.isEmpty();
+    }
+
+    /** @return the backing map's live view of its keys */
+    @Override
+    public Collection<K> keys() {
+        return backing.keys();
+    }
+
+    /** @return the backing map's live view of its values */
+    @Override
+    public Collection<V> values() {
+        return backing.values();
+    }
+
+    /** @return the backing map's live view of its entries */
+    @Override
+    public Collection<Entry<K, V>> entries() {
+        return backing.entries();
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        backing.forEach(action);
+    }
+
+    /** @return the number of mappings the cache holds now */
+    public int cachedSize() {
+        return index.size();
+    }
+
+    /** @return the most mappings the cache holds */
+    public int maximumSize() {
+        return maximumSize;
+    }
+
+    /** @return the eviction policy */
+    public Policy policy() {
+        return policy;
+    }
+
+    /** @return the number of lookups answered from the cache */
+    public long hitCount() {
+        return hits;
+    }
+
+    /** @return the number of lookups that went to the backing map */
+    public long missCount() {
+        return misses;
+    }
+
+    /** @return the fraction of lookups answered from the cache, or 0 if none ran */
+    public double hitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    /** @return the number of mappings evicted to stay within the maximum size */
+    public long evictionCount() {
+        return evictions;
+    }
+}
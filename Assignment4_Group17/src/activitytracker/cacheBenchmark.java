@@ -0,0 +1,134 @@
+package activitytracker;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Locale;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * A benchmark for {@link boundedCache}: session lookups drawn from a Zipf
+ * distribution over a large history are served by an LRU or W-TinyLFU cache
+ * of several sizes, and by an unbounded {@link linearProbingHashTable} that
+ * keeps every session it has fetched. Each row reports the hit rate, how many
+ * mappings the front map holds, the heap it retains and the lookup
+ * throughput.
+ */
+public class cacheBenchmark {
+
+    private static final int HISTORY_SIZE = 1_000_000;
+    private static final int ACCESS_COUNT = 5_000_000;
+    private static final int[] CACHE_SIZES = { 1_000, 10_000, 100_000 };
+    private static final double[] THETAS = { 0.8, zipfGenerator.DEFAULT_THETA };
+
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    public static void main(String[] args) {
+        String[] keys = new String[HISTORY_SIZE];
+        simpleMap<String, Integer> history = new linearProbingHashTable<>(16);
+        for (int i = 0; i < HISTORY_SIZE; i++) {
+            keys[i] = UUID.randomUUID().toString();
+            history.put(keys[i], i);
+        }
+
+        System.out.println("Theta,Front,MaximumSize,HitRate,Entries,RetainedHeap(MB),Throughput(ops/s),Evictions");
+        for (double theta : THETAS) {
+            int[] ranks = new int[ACCESS_COUNT];
+            zipfGenerator zipf = new zipfGenerator(HISTORY_SIZE, theta);
+            Random random = new Random(42);
+            for (int i = 0; i < ranks.length; i++) {
+                ranks[i] = zipf.next(random);
+            }
+
+            runUnbounded(history, keys, ranks, theta, false); // Warm up
+            runUnbounded(history, keys, ranks, theta, true);
+            for (int maximumSize : CACHE_SIZES) {
+                for (boundedCache.Policy policy : boundedCache.Policy.values()) {
+                    runCache(history, keys, ranks, theta, maximumSize, policy, false); // Warm up
+                    runCache(history, keys, ranks, theta, maximumSize, policy, true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Serves every access through a bounded cache in front of the history.
+     */
+    private static void runCache(simpleMap<String, Integer> history, String[] keys, int[] ranks, double theta,
+            int maximumSize, boundedCache.Policy policy, boolean report) {
+        long heapBefore = usedHeap();
+        boundedCache<String, Integer> cache = new boundedCache<>(history, maximumSize, policy);
+
+        long checksum = 0;
+        long start = System.nanoTime();
+        for (int rank : ranks) {
+            checksum += cache.get(keys[rank]);
+        }
+        long elapsed = System.nanoTime() - start;
+        verify(checksum, ranks);
+
+        long retained = usedHeap() - heapBefore;
+        if (report) {
+            System.out.printf(Locale.US, "%.2f,%s,%d,%.4f,%d,%.2f,%.0f,%d\n",
+                    theta, policy, maximumSize, cache.hitRate(), cache.cachedSize(), retained / 1e6,
+                    ranks.length / (elapsed / 1e9), cache.evictionCount());
+        }
+    }
+
+    /**
+     * Serves every access through an unbounded table that is filled from the
+     * history on a miss and never evicts.
+     */
+    private static void runUnbounded(simpleMap<String, Integer> history, String[] keys, int[] ranks,
+            double theta, boolean report) {
+        long heapBefore = usedHeap();
+        linearProbingHashTable<String, Integer> front = new linearProbingHashTable<>(16);
+
+        long hits = 0;
+        long checksum = 0;
+        long start = System.nanoTime();
+        for (int rank : ranks) {
+            String key = keys[rank];
+            Integer value = front.get(key);
+            if (value != null) {
+                hits++;
+            } else {
+                value = history.get(key);
+                front.put(key, value);
+            }
+            checksum += value;
+        }
+        long elapsed = System.nanoTime() - start;
+        verify(checksum, ranks);
+
+        long retained = usedHeap() - heapBefore;
+        if (report) {
+            System.out.printf(Locale.US, "%.2f,Unbounded,,%.4f,%d,%.2f,%.0f,0\n",
+                    theta, (double) hits / ranks.length, front.size(), retained / 1e6,
+                    ranks.length / (elapsed / 1e9));
+        }
+    }
+
+    /**
+     * Checks that every access returned the value stored for its key, which
+     * is the key's rank.
+     */
+    private static void verify(long checksum, int[] ranks) {
+        long expected = 0;
+        for (int rank : ranks) {
+            expected += rank;
+        }
+        if (checksum != expected) {
+            throw new IllegalStateException("Lookups returned the wrong values");
+        }
+    }
+
+    /**
+     * Returns the heap in use after a full collection, so the difference
+     * between two calls approximates what was retained in between.
+     */
+    private static long usedHeap() {
+        System.gc();
+        return MEMORY.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,91 @@
+package activitytracker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * A benchmark for lookup latency under a churn-heavy session workload, where
+ * keys are continually removed and replaced. Each round runs a batch of
+ * remove/insert cycles and then times lookups, so latency that grows with the
+ * number of cycles shows up as a rising GetTime column.
+ */
+public class churnBenchmark {
+
+    private static final int LIVE_KEYS = 1_000_000;
+    private static final int ROUNDS = 20;
+    private static final int CYCLES_PER_ROUND = 500_000;
+    private static final int LOOKUPS = 100_000;
+
+    private static String newKey() {
+        return UUID.randomUUID().toString();
+    }
+
+    private static void benchmark(String name, simpleMap<String, Integer> map) {
+        Random rand = new Random(42);
+        List<String> live = new ArrayList<>(LIVE_KEYS);
+        for (int i = 0; i < LIVE_KEYS; i++) {
+            String k = newKey();
+            live.add(k);
+            map.put(k, i);
+        }
+
+        List<String> missing = new ArrayList<>(LOOKUPS);
+        for (int i = 0; i < LOOKUPS; i++) {
+            missing.add(newKey());
+        }
+
+        long cycles = 0;
+        for (int round = 1; round <= ROUNDS; round++) {
+            // Churn: replace a random live key with a fresh one
+            for (int i = 0; i < CYCLES_PER_ROUND; i++) {
+                int slot = rand.nextInt(LIVE_KEYS);
+                map.remove(live.get(slot));
+                String k = newKey();
+                live.set(slot, k);
+                map.put(k, i);
+            }
+            cycles += CYCLES_PER_ROUND;
+
+            // Successful lookups
+            long start = System.nanoTime();
+            for (int i = 0; i < LOOKUPS; i++) {
+                map.get(live.get(rand.nextInt(LIVE_KEYS)));
+            }
+            long hitTime = System.nanoTime() - start;
+
+            // Unsuccessful lookups walk the whole probe chain
+            start = System.nanoTime();
+            for (String k : missing) {
+                map.get(k);
+            }
+            long missTime = System.nanoTime() - start;
+
+            System.out.printf(Locale.US, "%s,%d,%d,%.3f,%.1f,%.1f\n",
+                    name, round, cycles,
+                    tombstoneLoad(map),
+                    (double) hitTime / LOOKUPS,
+                    (double) missTime / LOOKUPS);
+        }
+    }
+
+    private static double tombstoneLoad(simpleMap<String, Integer> map) {
+        if (map instanceof linearProbingHashTable<String, Integer> lp) {
+            return lp.tombstoneLoad();
+        }
+        if (map instanceof flatLinearProbingHashTable<String, Integer> flat) {
+            return flat.tombstoneLoad();
+        }
+        return 0.0;
+    }
+
+    public static void main(String[] args) {
+        System.out.println("MapType,Round,Cycles,TombstoneLoad,GetHit(ns/op),GetMiss(ns/op)");
+
+        benchmark("LinearProbing", new linearProbingHashTable<>(2 * LIVE_KEYS));
+        benchmark("FlatLinearProbing", new flatLinearProbingHashTable<>(2 * LIVE_KEYS));
+        benchmark("SeparateChaining", new separateChainingHashTable<>(2 * LIVE_KEYS));
+    }
+}
@@ -0,0 +1,65 @@
+package activitytracker;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes and reads keys or values of one type in a table snapshot. Codecs
+ * never see null; the tables record nulls themselves.
+ *
+ * @param <T> the type encoded
+ */
+public interface codec<T> {
+
+    /**
+     * Writes a non-null value.
+     *
+     * @param out   the stream to write to
+     * @param value the value
+     */
+    void write(DataOutput out, T value) throws IOException;
+
+    /**
+     * Reads a value written by {@link #write}.
+     *
+     * @param in the stream to read from
+     * @return the value
+     */
+    T read(DataInput in) throws IOException;
+
+    /** Strings as a length-prefixed run of UTF-8 bytes, with no 64 KB limit. */
+    codec<String> STRING = new codec<>() {
+        @Override
+        public void write(DataOutput out, String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        @Override
+        public String read(DataInput in) throws IOException {
+            int length = in.readInt();
+            if (length < 0) {
+                throw new IOException("Corrupt string length " + length);
+            }
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    /** Integers as four big-endian bytes. */
+    codec<Integer> INTEGER = new codec<>() {
+        @Override
+        public void write(DataOutput out, Integer value) throws IOException {
+            out.writeInt(value);
+        }
+
+        @Override
+        public Integer read(DataInput in) throws IOException {
+            return in.readInt();
+        }
+    };
+}
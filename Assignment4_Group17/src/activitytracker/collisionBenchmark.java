@@ -0,0 +1,57 @@
+package activitytracker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A benchmark for lookups when every key has the same hash code, as an
+ * attacker choosing student IDs could arrange. "Aa" and "BB" share a hash
+ * code, so every string built from those two blocks lands in one bucket.
+ */
+public class collisionBenchmark {
+
+    private static final int[] SAMPLE_SIZES = { 256, 1_024, 4_096, 16_384, 32_768 };
+
+    private static List<String> generateCollidingKeys(int n) {
+        List<String> keys = new ArrayList<>(List.of(""));
+        while (keys.size() < n) {
+            List<String> next = new ArrayList<>(keys.size() * 2);
+            for (String k : keys) {
+                next.add(k + "Aa");
+                next.add(k + "BB");
+            }
+            keys = next;
+        }
+        return keys.subList(0, n);
+    }
+
+    private static void benchmark(String name, simpleMap<String, Integer> map, List<String> keys) {
+        long start = System.nanoTime();
+        for (String k : keys) {
+            map.put(k, 1);
+        }
+        long insertTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (String k : keys) {
+            map.get(k);
+        }
+        long getTime = System.nanoTime() - start;
+
+        System.out.printf(Locale.US, "%s,%d,%.3f,%.3f\n",
+                name, keys.size(),
+                insertTime / 1e6,
+                getTime / 1e6);
+    }
+
+    public static void main(String[] args) {
+        System.out.println("MapType,CollidingKeys,InsertTime(ms),GetTime(ms)");
+
+        for (int size : SAMPLE_SIZES) {
+            List<String> keys = generateCollidingKeys(size);
+            benchmark("SeparateChaining", new separateChainingHashTable<>(2 * size), keys);
+            benchmark("LinearProbing", new linearProbingHashTable<>(2 * size), keys);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package activitytracker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * A benchmark for multi-threaded ingestion. A fixed set of keys is split
+ * across 1 to N threads, which first insert their share and then look it up
+ * again. The lock-striped table is compared with a separate chaining table
+ * behind one global lock, which is how the single-threaded tables have to be
+ * shared today.
+ */
+public class concurrentBenchmark {
+
+    private static final int TOTAL_KEYS = 4_000_000;
+
+    private static List<String> generateKeys(int n) {
+        List<String> keys = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            keys.add(UUID.randomUUID().toString());
+        }
+        return keys;
+    }
+
+    /**
+     * Runs one phase on {@code threads} threads, each handling a contiguous
+     * slice of the keys.
+     *
+     * @return elapsed nanoseconds for the slowest thread to finish
+     */
+    private static long runPhase(int threads, List<String> keys, boolean insert, simpleMap<String, Integer> map)
+            throws InterruptedException {
+        Thread[] workers = new Thread[threads];
+        int slice = keys.size() / threads;
+        for (int t = 0; t < threads; t++) {
+            int from = t * slice;
+            int to = (t == threads - 1) ? keys.size() : from + slice;
+            workers[t] = new Thread(() -> {
+                for (int i = from; i < to; i++) {
+                    if (insert) {
+                        map.put(keys.get(i), i);
+                    } else {
+                        map.get(keys.get(i));
+                    }
+                }
+            });
+        }
+
+        long start = System.nanoTime();
+        for (Thread w : workers) {
+            w.start();
+        }
+        for (Thread w : workers) {
+            w.join();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void benchmark(String name, simpleMap<String, Integer> map, int threads, List<String> keys)
+            throws InterruptedException {
+        long putTime = runPhase(threads, keys, true, map);
+        long getTime = runPhase(threads, keys, false, map);
+
+        if (map.size() != keys.size()) {
+            throw new RuntimeException(name + " lost updates: " + map.size() + " != " + keys.size());
+        }
+
+        System.out.printf(Locale.US, "%s,%d,%.3f,%.3f\n",
+                name, threads,
+                keys.size() / (putTime / 1e3),
+                keys.size() / (getTime / 1e3));
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        List<String> keys = generateKeys(TOTAL_KEYS);
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        List<Integer> threadCounts = new ArrayList<>();
+        for (int t = 1; t < cores; t *= 2) {
+            threadCounts.add(t);
+        }
+        threadCounts.add(cores);
+
+        System.out.println("MapType,Threads,PutThroughput(Mops/s),GetThroughput(Mops/s)");
+
+        for (int threads : threadCounts) {
+            benchmark("ConcurrentChaining", new concurrentChainingHashTable<>(TOTAL_KEYS), threads, keys);
+            benchmark("GlobalLockChaining", new globalLockMap<>(new separateChainingHashTable<>(TOTAL_KEYS)),
+                    threads, keys);
+        }
+    }
+}
@@ -0,0 +1,393 @@
+package activitytracker;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * A thread-safe hash table implementation using separate chaining for
+ * collision resolution. This class implements the SimpleMap interface.
+ * <p>
+ * The buckets are split across a fixed number of segments, each guarded by its
+ * own lock, so writers only contend when their keys land in the same segment.
+ * Chain nodes have a final {@code next} pointer and a volatile value, and a
+ * segment publishes a new bucket array only once it is fully built, which lets
+ * {@link #get(Object)} run without taking any lock. Each segment resizes on its
+ * own, so a resize only holds up writers of that one segment.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ */
+public class concurrentChainingHashTable<K, V> implements simpleMap<K, V> {
+
+    private static final double LOAD_FACTOR = 0.75;
+    private static final int MIN_SEGMENT_CAPACITY = 2;
+
+    /**
+     * A node in a bucket chain. Chains are only ever modified by replacing the
+     * head, so a reader that has fetched a head sees a consistent chain.
+     */
+    private static final class Node<K, V> implements simpleMap.Entry<K, V> {
+        final K key;
+        final int hash;
+        volatile V value;
+        final Node<K, V> next;
+
+        /**
+         * Constructs a chain node.
+         *
+         * @param key   the key
+         * @param hash  the spread hash of the key
+         * @param value the value
+         * @param next  the rest of the chain
+         */
+        Node(K key, int hash, V value, Node<K, V> next) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+            this.next = next;
+        }
+
+        /** @return the key associated with this entry */
+        @Override
+        public K key() {
+            return key;
+        }
+
+        /** @return the value associated with this entry */
+        @Override
+        public V value() {
+            return value;
+        }
+    }
+
+    /**
+     * An independently locked and resized part of the table.
+     */
+    @SuppressWarnings("serial")
+    private static final class Segment<K, V> extends ReentrantLock {
+        volatile AtomicReferenceArray<Node<K, V>> table;
+        volatile int count;
+
+        /**
+         * Constructs a segment with the given power-of-two capacity.
+         *
+         * @param capacity the number of buckets
+         */
+        Segment(int capacity) {
+            table = new AtomicReferenceArray<>(capacity);
+        }
+
+        /**
+         * Looks up a key without locking.
+         *
+         * @param key  the key
+         * @param hash the spread hash of the key
+         * @return the value, or null if not found
+         */
+        V get(Object key, int hash) {
+            AtomicReferenceArray<Node<K, V>> tab = table;
+            for (Node<K, V> n = tab.get(hash & (tab.length() - 1)); n != null; n = n.next) {
+                if (n.hash == hash && n.key.equals(key)) {
+                    return n.value;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Inserts or updates a mapping while holding the segment lock.
+         *
+         * @param key   the key
+         * @param hash  the spread hash of the key
+         * @param value the value
+         * @return the previous value, or null if new
+         */
+        V put(K key, int hash, V value) {
+            lock();
+            try {
+                AtomicReferenceArray<Node<K, V>> tab = table;
+                int index = hash & (tab.length() - 1);
+                Node<K, V> head = tab.get(index);
+                for (Node<K, V> n = head; n != null; n = n.next) {
+                    if (n.hash == hash && n.key.equals(key)) {
+                        V oldValue = n.value;
+                        n.value = value;
+                        return oldValue;
+                    }
+                }
+
+                if ((double) (count + 1) / tab.length() > LOAD_FACTOR) {
+                    tab = resize(tab);
+                    index = hash & (tab.length() - 1);
+                    head = tab.get(index);
+                }
+                tab.set(index, new Node<>(key, hash, value, head));
+                count++;
+                return null;
+            } finally {
+                unlock();
+            }
+        }
+
+        /**
+         * Removes a mapping while holding the segment lock. The nodes in front of
+         * the removed one are copied, so concurrent readers of the old chain are
+         * unaffected.
+         *
+         * @param key  the key
+         * @param hash the spread hash of the key
+         * @return the value removed, or null if not present
+         */
+        V remove(Object key, int hash) {
+            lock();
+            try {
+                AtomicReferenceArray<Node<K, V>> tab = table;
+                int index = hash & (tab.length() - 1);
+                Node<K, V> head = tab.get(index);
+                Node<K, V> target = head;
+                while (target != null && !(target.hash == hash && target.key.equals(key))) {
+                    target = target.next;
+                }
+                if (target == null) {
+                    return null;
+                }
+
+                Node<K, V> newHead = target.next;
+                for (Node<K, V> n = head; n != target; n = n.next) {
+                    newHead = new Node<>(n.key, n.hash, n.value, newHead);
+                }
+                tab.set(index, newHead);
+                count--;
+                return target.value;
+            } finally {
+                unlock();
+            }
+        }
+
+        /**
+         * Doubles the bucket array of this segment. The new array is filled with
+         * copied nodes before it is published, so readers keep using the old
+         * array until the switch.
+         *
+         * @param oldTable the current bucket array
+         * @return the new bucket array
+         */
+        private AtomicReferenceArray<Node<K, V>> resize(AtomicReferenceArray<Node<K, V>> oldTable) {
+            int newCapacity = oldTable.length() * 2;
+            AtomicReferenceArray<Node<K, V>> newTable = new AtomicReferenceArray<>(newCapacity);
+            for (int i = 0; i < oldTable.length(); i++) {
+                for (Node<K, V> n = oldTable.get(i); n != null; n = n.next) {
+                    int index = n.hash & (newCapacity - 1);
+                    newTable.set(index, new Node<>(n.key, n.hash, n.value, newTable.get(index)));
+                }
+            }
+            table = newTable;
+            return newTable;
+        }
+    }
+
+    private final Segment<K, V>[] segments;
+    private final int segmentShift;
+
+    /**
+     * Constructs a hash table with the specified initial capacity and a number
+     * of segments based on the available processors.
+     *
+     * @param capacity the initial number of buckets across all segments
+     */
+    public concurrentChainingHashTable(int capacity) {
+        this(capacity, Math.max(16, 4 * Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Constructs a hash table with the specified initial capacity and number of
+     * segments.
+     *
+     * @param capacity         the initial number of buckets across all segments
+     * @param concurrencyLevel the expected number of concurrent writers, rounded
+     *                         up to a power of two segments
+     */
+    @SuppressWarnings("unchecked")
+    public concurrentChainingHashTable(int capacity, int concurrencyLevel) {
+        if (concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("Concurrency level must be positive");
+        }
+        int segmentCount = powerOfTwoAtLeast(concurrencyLevel);
+        int segmentCapacity = powerOfTwoAtLeast(Math.max(MIN_SEGMENT_CAPACITY, capacity / segmentCount));
+
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>(segmentCapacity);
+        }
+        segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+    }
+
+    /**
+     * Rounds a positive value up to a power of two.
+     *
+     * @param n the value
+     * @return the smallest power of two that is at least {@code n}
+     */
+    private static int powerOfTwoAtLeast(int n) {
+        return n <= 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+    }
+
+    /**
+     * Spreads the key's hash code so both the segment index (high bits) and the
+     * bucket index (low bits) depend on all of its bits.
+     *
+     * @param key the key
+     * @return the spread hash
+     */
+    private static int hash(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns the segment responsible for a hash.
+     *
+     * @param hash the spread hash
+     * @return the segment
+     */
+    private Segment<K, V> segmentFor(int hash) {
+        return segmentShift == 32 ? segments[0] : segments[hash >>> segmentShift];
+    }
+
+    /**
+     * Inserts or updates a key-value pair.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return the old value if the key was already present, or null otherwise
+     */
+    @Override
+    public V put(K key, V value) {
+        int h = hash(key);
+        return segmentFor(h).put(key, h, value);
+    }
+
+    /**
+     * Retrieves the value associated with a given key without locking.
+     *
+     * @param key the key
+     * @return the value, or null if not found
+     */
+    @Override
+    public V get(K key) {
+        int h = hash(key);
+        return segmentFor(h).get(key, h);
+    }
+
+    /**
+     * Removes the entry associated with a given key.
+     *
+     * @param key the key
+     * @return the value removed, or null if the key was not present
+     */
+    @Override
+    public V remove(K key) {
+        int h = hash(key);
+        return segmentFor(h).remove(key, h);
+    }
+
+    /** @return the number of key-value pairs in the hash table */
+    @Override
+    public int size() {
+        long total = 0;
+        for (Segment<K, V> segment : segments) {
+            total += segment.count;
+        }
+        return (int) Math.min(total, Integer.MAX_VALUE);
+    }
+
+    /** @return true if the hash table is empty */
+    @Override
+    public boolean isEmpty() {
+        for (Segment<K, V> segment : segments) {
+            if (segment.count != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** @return a live collection of all keys */
+    @Override
+    public Collection<K> keys() {
+        return slotSpliterator.view(this::size, () -> spliterator(n -> n.key,
+                Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.CONCURRENT));
+    }
+
+    /** @return a live collection of all values */
+    @Override
+    public Collection<V> values() {
+        return slotSpliterator.view(this::size, () -> spliterator(n -> n.value, Spliterator.CONCURRENT));
+    }
+
+    /**
+     * Returns a live collection of all key-value entries. A traversal sees the
+     * entries present in each bucket at the time it was visited; writes made
+     * during the traversal may or may not be included.
+     *
+     * @return a collection of all key-value entries
+     */
+    @Override
+    public Collection<simpleMap.Entry<K, V>> entries() {
+        return slotSpliterator.view(this::size, () -> spliterator(n -> n,
+                Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.CONCURRENT));
+    }
+
+    /**
+     * Performs an action for every mapping, with the same consistency as
+     * {@link #entries()}.
+     *
+     * @param action the action to perform for each mapping
+     */
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        for (Segment<K, V> segment : segments) {
+            AtomicReferenceArray<Node<K, V>> tab = segment.table;
+            for (int i = 0; i < tab.length(); i++) {
+                for (Node<K, V> n = tab.get(i); n != null; n = n.next) {
+                    action.accept(n.key, n.value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a spliterator over the buckets of every segment, numbered
+     * segment by segment. The bucket arrays are read once up front, so a
+     * segment that resizes during the traversal is still scanned as it was.
+     *
+     * @param extract         maps a node to the element handed out
+     * @param characteristics the characteristics of the elements
+     * @return a spliterator that splits by bucket range
+     */
+    @SuppressWarnings("unchecked")
+    private <E> Spliterator<E> spliterator(Function<Node<K, V>, E> extract, int characteristics) {
+        AtomicReferenceArray<Node<K, V>>[] tables = new AtomicReferenceArray[segments.length];
+        int[] starts = new int[segments.length];
+        int slots = 0;
+        for (int i = 0; i < segments.length; i++) {
+            tables[i] = segments[i].table;
+            starts[i] = slots;
+            slots += tables[i].length();
+        }
+        return new slotSpliterator<E>((slot, action) -> {
+            int s = Arrays.binarySearch(starts, slot);
+            if (s < 0) {
+                s = -s - 2; // The segment starting before the slot
+            }
+            for (Node<K, V> n = tables[s].get(slot - starts[s]); n != null; n = n.next) {
+                action.accept(extract.apply(n));
+            }
+        }, 0, slots, size(), characteristics);
+    }
+}
@@ -0,0 +1,518 @@
+package activitytracker;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/**
+ * A hash table implementation using linear probing that keeps keys, values,
+ * cached hashes and deleted flags in parallel arrays. No object is allocated
+ * per mapping, the capacity is always a power of two so probing uses a mask
+ * instead of a modulo, and {@code equals} is only called when the cached hashes
+ * match. This class implements the SimpleMap interface.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of values
+ */
+public class flatLinearProbingHashTable<K, V> implements simpleMap<K, V> {
+
+    private static final double LOAD_FACTOR = 0.75;
+    private static final double TOMBSTONE_RATIO = 0.25;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+    private static final int BATCH_GROUP = 16;
+
+    private Object[] keys;
+    private Object[] values;
+    private int[] hashes;
+    private boolean[] deleted;
+    private int mask;
+    private int size;
+    private int tombstones;
+
+    /**
+     * Constructs a hash table with at least the specified initial capacity. The
+     * capacity is rounded up to the next power of two.
+     *
+     * @param capacity initial number of slots
+     */
+    public flatLinearProbingHashTable(int capacity) {
+        allocate(tableSizeFor(capacity));
+        size = 0;
+    }
+
+    /**
+     * Rounds the requested capacity up to a power of two.
+     *
+     * @param capacity the requested capacity
+     * @return the smallest power of two that is at least {@code capacity}
+     */
+    private static int tableSizeFor(int capacity) {
+        if (capacity <= 1) {
+            return 1;
+        }
+        if (capacity >= MAXIMUM_CAPACITY) {
+            return MAXIMUM_CAPACITY;
+        }
+        return Integer.highestOneBit(capacity - 1) << 1;
+    }
+
+    /**
+     * Allocates empty slot arrays of the given power-of-two capacity.
+     *
+     * @param capacity the number of slots
+     */
+    private void allocate(int capacity) {
+        keys = new Object[capacity];
+        values = new Object[capacity];
+        hashes = new int[capacity];
+        deleted = new boolean[capacity];
+        mask = capacity - 1;
+        tombstones = 0;
+    }
+
+    /**
+     * Spreads the higher bits of the key's hash code into the lower bits, since
+     * masking only looks at the low bits.
+     *
+     * @param key the key
+     * @return the cached hash for the key
+     */
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Finds the slot holding the given key.
+     *
+     * @param key the key
+     * @param h   the cached hash of the key
+     * @return the slot index, or -1 if not found
+     */
+    private int find(Object key, int h) {
+        int index = h & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            Object k = keys[index];
+            if (k == null) {
+                if (!deleted[index])
+                    return -1;
+            } else if (hashes[index] == h && k.equals(key)) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Inserts or updates a key-value mapping in the table.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return the previous value or null if new
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        if ((double) (size + tombstones + 1) / keys.length > LOAD_FACTOR) {
+            resize();
+        }
+        return putHashed(key, hash(key), value);
+    }
+
+    /**
+     * Inserts or updates a mapping in a table known to have room for it.
+     *
+     * @param key   the key
+     * @param h     the cached hash of the key
+     * @param value the value
+     * @return the previous value or null if new
+     */
+    @SuppressWarnings("unchecked")
+    private V putHashed(K key, int h, V value) {
+        int index = h & mask;
+        int firstDeleted = -1;
+
+        for (int probes = 0; probes <= mask; probes++) {
+            Object k = keys[index];
+            if (k == null) {
+                if (!deleted[index]) {
+                    break;
+                }
+                if (firstDeleted < 0) {
+                    firstDeleted = index;
+                }
+            } else if (hashes[index] == h && k.equals(key)) {
+                V oldValue = (V) values[index];
+                values[index] = value;
+                return oldValue;
+            }
+            index = (index + 1) & mask;
+        }
+
+        if (firstDeleted >= 0) {
+            index = firstDeleted;
+            deleted[index] = false;
+            tombstones--;
+        } else if (keys[index] != null || deleted[index]) {
+            throw new IllegalStateException("HashTable is full");
+        }
+        keys[index] = key;
+        values[index] = value;
+        hashes[index] = h;
+        size++;
+        return null;
+    }
+
+    /**
+     * Grows the table when live entries pass the load factor, otherwise rehashes
+     * at the same capacity to clear tombstones.
+     */
+    private void resize() {
+        int newCapacity = keys.length;
+        if ((double) (size + 1) / keys.length > LOAD_FACTOR / 2 && newCapacity < MAXIMUM_CAPACITY) {
+            newCapacity *= 2;
+        }
+        rehash(newCapacity);
+    }
+
+    /**
+     * Reinserts all live mappings into new arrays of the given capacity,
+     * dropping every tombstone.
+     *
+     * @param newCapacity the number of slots, a power of two
+     */
+    private void rehash(int newCapacity) {
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+        int[] oldHashes = hashes;
+
+        allocate(newCapacity);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                reinsert(oldKeys[i], oldValues[i], oldHashes[i]);
+            }
+        }
+    }
+
+    /**
+     * Reinserts a mapping during resizing, reusing its cached hash.
+     *
+     * @param key   the key
+     * @param value the value
+     * @param h     the cached hash of the key
+     */
+    private void reinsert(Object key, Object value, int h) {
+        int index = h & mask;
+        while (keys[index] != null) {
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        values[index] = value;
+        hashes[index] = h;
+    }
+
+    /**
+     * Retrieves a value by its key.
+     *
+     * @param key the key
+     * @return the value or null if not found
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        int index = find(key, hash(key));
+        return index < 0 ? null : (V) values[index];
+    }
+
+    /**
+     * Removes a key-value mapping.
+     *
+     * @param key the key to remove
+     * @return the value removed, or null if not found
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(K key) {
+        int index = find(key, hash(key));
+        if (index < 0)
+            return null;
+
+        V oldValue = removeAt(index);
+        if ((double) tombstones / keys.length > TOMBSTONE_RATIO) {
+            rehash(keys.length);
+        }
+        return oldValue;
+    }
+
+    /**
+     * Replaces the mapping in a slot with a tombstone.
+     *
+     * @param index the slot index
+     * @return the value removed
+     */
+    @SuppressWarnings("unchecked")
+    private V removeAt(int index) {
+        V oldValue = (V) values[index];
+        keys[index] = null;
+        values[index] = null;
+        deleted[index] = true;
+        tombstones++;
+        size--;
+        return oldValue;
+    }
+
+    /**
+     * Inserts or updates every mapping of a batch in groups, as described on
+     * {@link simpleMap#putAll}. Tombstones count towards the load, and the
+     * table is resized at most once, to the smallest power of two that fits.
+     *
+     * @param batchKeys   the keys
+     * @param batchValues the values, one per key
+     */
+    @Override
+    public void putAll(List<? extends K> batchKeys, List<? extends V> batchValues) {
+        if (batchKeys.size() != batchValues.size()) {
+            throw new IllegalArgumentException(batchKeys.size() + " keys but " + batchValues.size() + " values");
+        }
+        int n = batchKeys.size();
+        if ((double) (size + tombstones + n) / keys.length > LOAD_FACTOR) {
+            rehash(Math.max(keys.length, tableSizeFor((int) Math.min(MAXIMUM_CAPACITY,
+                    (long) Math.ceil((size + n + 1) / LOAD_FACTOR)))));
+        }
+        int[] h = hashAll(batchKeys);
+        int[] homeHashes = new int[BATCH_GROUP];
+        for (int base = 0; base < n; base += BATCH_GROUP) {
+            int end = Math.min(base + BATCH_GROUP, n);
+            touchGroup(h, base, end, homeHashes);
+            for (int i = base; i < end; i++) {
+                putHashed(batchKeys.get(i), h[i], batchValues.get(i));
+            }
+        }
+    }
+
+    /**
+     * Looks up every key of a batch in groups. A key whose home slot holds its
+     * hash is checked there without probing.
+     *
+     * @param batchKeys the keys
+     * @return the value of each key in the same order, null where not found
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<V> getAll(List<? extends K> batchKeys) {
+        int n = batchKeys.size();
+        int[] h = hashAll(batchKeys);
+        Object[] result = new Object[n];
+        int[] homeHashes = new int[BATCH_GROUP];
+        for (int base = 0; base < n; base += BATCH_GROUP) {
+            int end = Math.min(base + BATCH_GROUP, n);
+            touchGroup(h, base, end, homeHashes);
+            for (int i = base; i < end; i++) {
+                K key = batchKeys.get(i);
+                int index = h[i] & mask;
+                Object k = keys[index];
+                if (homeHashes[i - base] != h[i] || k == null || !k.equals(key)) {
+                    index = find(key, h[i]);
+                }
+                result[i] = index < 0 ? null : values[index];
+            }
+        }
+        return (List<V>) Arrays.asList(result);
+    }
+
+    /**
+     * Removes every key of a batch in groups like {@link #getAll}. Tombstones
+     * are only cleared once, after the whole batch.
+     *
+     * @param batchKeys the keys
+     * @return the value removed for each key in the same order, null where
+     *         not present
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<V> removeAll(List<? extends K> batchKeys) {
+        int n = batchKeys.size();
+        int[] h = hashAll(batchKeys);
+        Object[] result = new Object[n];
+        int[] homeHashes = new int[BATCH_GROUP];
+        for (int base = 0; base < n; base += BATCH_GROUP) {
+            int end = Math.min(base + BATCH_GROUP, n);
+            touchGroup(h, base, end, homeHashes);
+            for (int i = base; i < end; i++) {
+                int index = find(batchKeys.get(i), h[i]);
+                result[i] = index < 0 ? null : removeAt(index);
+            }
+        }
+        if ((double) tombstones / keys.length > TOMBSTONE_RATIO) {
+            rehash(keys.length);
+        }
+        return (List<V>) Arrays.asList(result);
+    }
+
+    private static int[] hashAll(List<?> batchKeys) {
+        int[] h = new int[batchKeys.size()];
+        for (int i = 0; i < h.length; i++) {
+            h[i] = hash(batchKeys.get(i));
+        }
+        return h;
+    }
+
+    /**
+     * Reads the cached hash in the home slot of every key in a group.
+     *
+     * @param h          the hashes of the batch
+     * @param base       the first key of the group
+     * @param end        one past the last key of the group
+     * @param homeHashes receives the hash found in each home slot
+     */
+    private void touchGroup(int[] h, int base, int end, int[] homeHashes) {
+        for (int i = base; i < end; i++) {
+            homeHashes[i - base] = hashes[h[i] & mask];
+        }
+    }
+
+    /**
+     * Checks if the table contains the specified key.
+     *
+     * @param key the key to check
+     * @return true if present
+     */
+    public boolean containsKey(K key) {
+        return find(key, hash(key)) >= 0;
+    }
+
+    /**
+     * Returns the number of key-value pairs in the table.
+     *
+     * @return size of map
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of slots holding a deleted entry.
+     *
+     * @return number of tombstones
+     */
+    public int tombstoneCount() {
+        return tombstones;
+    }
+
+    /**
+     * Returns the fraction of slots holding a deleted entry.
+     *
+     * @return tombstones divided by capacity
+     */
+    public double tombstoneLoad() {
+        return (double) tombstones / keys.length;
+    }
+
+    /**
+     * Checks if the map is empty.
+     *
+     * @return true if no entries
+     */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns a live collection view of the keys in the hash table.
+     *
+     * @return a collection of keys
+     */
+    @Override
+    public Collection<K> keys() {
+        return slotSpliterator.view(this::size,
+                () -> spliterator((k, v) -> k, Spliterator.DISTINCT | Spliterator.NONNULL));
+    }
+
+    /**
+     * Returns a live collection view of the values in the hash table.
+     *
+     * @return a collection of values
+     */
+    @Override
+    public Collection<V> values() {
+        return slotSpliterator.view(this::size, () -> spliterator((k, v) -> v, 0));
+    }
+
+    /**
+     * Returns a live collection view of the entries in the hash table. Each
+     * entry is created as the traversal reaches it; use {@link #forEach} to
+     * visit the mappings without creating any.
+     *
+     * @return a collection of key-value entries
+     */
+    @Override
+    public Collection<simpleMap.Entry<K, V>> entries() {
+        return slotSpliterator.view(this::size,
+                () -> spliterator(Entry::new, Spliterator.DISTINCT | Spliterator.NONNULL));
+    }
+
+    /**
+     * Performs an action for every mapping, straight from the slot arrays.
+     *
+     * @param action the action to perform for each mapping
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                action.accept((K) keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    /**
+     * Creates a spliterator over the occupied slots of the table.
+     *
+     * @param extract         maps a key and value to the element handed out
+     * @param characteristics the characteristics of the elements
+     * @return a spliterator that splits by slot range
+     */
+    @SuppressWarnings("unchecked")
+    private <E> Spliterator<E> spliterator(BiFunction<K, V, E> extract, int characteristics) {
+        Object[] slotKeys = keys;
+        Object[] slotValues = values;
+        return new slotSpliterator<E>((slot, action) -> {
+            if (slotKeys[slot] != null) {
+                action.accept(extract.apply((K) slotKeys[slot], (V) slotValues[slot]));
+            }
+        }, 0, slotKeys.length, size, characteristics);
+    }
+
+    /**
+     * An immutable key-value pair handed out by {@link #entries()}.
+     */
+    private static class Entry<K, V> implements simpleMap.Entry<K, V> {
+        final K key;
+        final V value;
+
+        Entry(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        /** @return the key of the entry */
+        @Override
+        public K key() {
+            return key;
+        }
+
+        /** @return the value of the entry */
+        @Override
+        public V value() {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package activitytracker;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Wraps a map so every operation runs under one shared lock, which is how the
+ * single-threaded tables have to be shared between threads. The views are
+ * copied under the lock rather than live.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ */
+class globalLockMap<K, V> implements simpleMap<K, V> {
+    private final simpleMap<K, V> map;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    globalLockMap(simpleMap<K, V> map) {
+        this.map = map;
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return map.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public V get(K k) {
+        lock.lock();
+        try {
+            return map.get(k);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public V put(K k, V v) {
+        lock.lock();
+        try {
+            return map.put(k, v);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public V remove(K k) {
+        lock.lock();
+        try {
+            return map.remove(k);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Collection<K> keys() {
+        lock.lock();
+        try {
+            return new ArrayList<>(map.keys()); // The views are live; copy under the lock
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Collection<V> values() {
+        lock.lock();
+        try {
+            return new ArrayList<>(map.values());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Collection<Entry<K, V>> entries() {
+        lock.lock();
+        try {
+            return new ArrayList<>(map.entries());
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package activitytracker;
+
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A hash chain over a stream of log entries. Each link is
+ * {@code SHA-256(0x02 || previous || utf8(entry))}, starting from a genesis
+ * link of zero bytes, so changing, dropping or reordering any entry changes
+ * every link after it.
+ * <p>
+ * The chain keeps only its head and a checkpoint every {@code interval}
+ * entries: the link after the last entry of each full segment. An entry is
+ * verified by replaying its segment from the checkpoint before it, not the
+ * chain from genesis, and whole chains are verified segment by segment in
+ * parallel.
+ * <p>
+ * Appends are not thread-safe; verification only reads the checkpoints.
+ */
+public class hashChain {
+
+    private static final int DIGEST_LENGTH = merkleTree.DIGEST_LENGTH;
+    private static final HexFormat HEX = HexFormat.of();
+    private static final byte[] GENESIS = new byte[DIGEST_LENGTH];
+
+    private final int interval;
+    private final byte[] head = new byte[DIGEST_LENGTH];
+    private byte[] checkpoints; // Packed end to end, one per full segment
+    private int size;
+
+    /**
+     * Constructs an empty chain that checkpoints every {@code interval}
+     * entries.
+     */
+    public hashChain(int interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive");
+        }
+        this.interval = interval;
+        this.checkpoints = new byte[16 * DIGEST_LENGTH];
+    }
+
+    /**
+     * Links an entry onto the chain.
+     *
+     * @return the index of the entry
+     */
+    public int append(String entry) {
+        if (size == Integer.MAX_VALUE) {
+            throw new IllegalStateException("Chain is full");
+        }
+        merkleTree.linkDigest(head, entry, head);
+        size++;
+        if (size % interval == 0) {
+            int offset = (size / interval - 1) * DIGEST_LENGTH;
+            if (offset + DIGEST_LENGTH > checkpoints.length) {
+                checkpoints = Arrays.copyOf(checkpoints, checkpoints.length * 2);
+            }
+            System.arraycopy(head, 0, checkpoints, offset, DIGEST_LENGTH);
+        }
+        return size - 1;
+    }
+
+    /**
+     * Returns the number of entries in the chain.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of entries between checkpoints.
+     */
+    public int getCheckpointInterval() {
+        return interval;
+    }
+
+    /**
+     * Returns the head link of the chain as a hex string.
+     */
+    public String getHeadHash() {
+        return HEX.formatHex(head);
+    }
+
+    /**
+     * Returns a copy of the head link of the chain.
+     */
+    public byte[] getHeadDigest() {
+        return head.clone();
+    }
+
+    /**
+     * Returns the number of checkpoints, one per full segment.
+     */
+    public int getCheckpointCount() {
+        return size / interval;
+    }
+
+    /**
+     * Returns a copy of the link after the last entry of a full segment.
+     */
+    public byte[] getCheckpoint(int segment) {
+        if (segment < 0 || segment >= getCheckpointCount())
+            throw new IndexOutOfBoundsException("Segment " + segment + " has no checkpoint");
+        int offset = segment * DIGEST_LENGTH;
+        return Arrays.copyOfRange(checkpoints, offset, offset + DIGEST_LENGTH);
+    }
+
+    /**
+     * Verifies one entry by replaying its segment from the checkpoint before
+     * it to the checkpoint after it, or to the head for the last segment.
+     *
+     * @param entries every entry of the chain, in order
+     * @param index   the position of the entry to verify
+     * @return true if the entry's segment matches its stored links
+     */
+    public boolean verify(List<String> entries, int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Entry " + index + " out of range");
+        return entries.size() == size && verifySegment(entries, index / interval);
+    }
+
+    /**
+     * Verifies every entry segment by segment, replaying each from the
+     * checkpoint before it and comparing the result with the checkpoint after
+     * it, or with the head for the last segment.
+     *
+     * @param entries every entry of the chain, in order
+     * @return true if every segment matches its stored links
+     */
+    public boolean verify(List<String> entries) {
+        if (entries.size() != size) {
+            return false;
+        }
+        for (int segment = 0; segment <= lastSegment(); segment++) {
+            if (!verifySegment(entries, segment)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Verifies every entry, replaying the segments in parallel on the given
+     * pool. Each segment starts from the checkpoint before it, so no segment
+     * waits on another.
+     *
+     * @param entries every entry of the chain, in order
+     * @return true if every segment matches its stored links
+     */
+    public boolean verify(List<String> entries, ForkJoinPool pool) {
+        if (entries.size() != size) {
+            return false;
+        }
+        return pool.invoke(new SegmentTask(entries, 0, lastSegment() + 1));
+    }
+
+    private int lastSegment() {
+        return size == 0 ? -1 : (size - 1) / interval;
+    }
+
+    /**
+     * Replays one segment from the link before it and compares the result
+     * with the link stored after it.
+     */
+    private boolean verifySegment(List<String> entries, int segment) {
+        int from = segment * interval;
+        int to = (int) Math.min((long) from + interval, size);
+        byte[] link = segment == 0 ? GENESIS.clone()
+                : Arrays.copyOfRange(checkpoints, (segment - 1) * DIGEST_LENGTH, segment * DIGEST_LENGTH);
+        for (int i = from; i < to; i++) {
+            merkleTree.linkDigest(link, entries.get(i), link);
+        }
+        if (to == size) {
+            return Arrays.equals(link, head);
+        }
+        int offset = segment * DIGEST_LENGTH;
+        return Arrays.equals(link, 0, DIGEST_LENGTH, checkpoints, offset, offset + DIGEST_LENGTH);
+    }
+
+    /**
+     * Verifies a range of segments, splitting it in half until one segment
+     * remains.
+     */
+    @SuppressWarnings("serial")
+    private final class SegmentTask extends RecursiveTask<Boolean> {
+        private final List<String> entries;
+        private final int from, to;
+
+        SegmentTask(List<String> entries, int from, int to) {
+            this.entries = entries;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Boolean compute() {
+            if (to - from <= 1) {
+                return from == to || verifySegment(entries, from);
+            }
+            int mid = (from + to) >>> 1;
+            SegmentTask right = new SegmentTask(entries, mid, to);
+            right.fork();
+            boolean left = new SegmentTask(entries, from, mid).compute();
+            return right.join() && left;
+        }
+    }
+}
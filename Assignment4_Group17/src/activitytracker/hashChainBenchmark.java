@@ -0,0 +1,90 @@
+package activitytracker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A benchmark for the hash chain: append throughput, verifying one entry from
+ * its checkpoint against replaying from genesis, and verifying the whole chain
+ * on 1 to N worker threads.
+ */
+public class hashChainBenchmark {
+
+    private static final int[] SAMPLE_SIZES = { 10_000, 100_000, 1_000_000, 2_500_000 };
+    private static final int CHECKPOINT_INTERVAL = 4_096;
+
+    private static List<String> generateLogs(int count) {
+        List<String> data = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            data.add("log_event_student" + (i % 100) + "_timestamp_" + System.nanoTime());
+        }
+        return data;
+    }
+
+    public static void main(String[] args) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        Random random = new Random();
+
+        System.out.println("SampleSize,AppendThroughput(events/s),EntryVerifyTime(ms),GenesisVerifyTime(ms)");
+        List<String> logs = null;
+        hashChain chain = null;
+        for (int size : SAMPLE_SIZES) {
+            logs = generateLogs(size);
+
+            chain = new hashChain(CHECKPOINT_INTERVAL);
+            long start = System.nanoTime();
+            for (String event : logs) {
+                chain.append(event);
+            }
+            long appendTime = System.nanoTime() - start;
+
+            int target = random.nextInt(size);
+            start = System.nanoTime();
+            boolean isValid = chain.verify(logs, target);
+            long entryTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            isValid &= chain.verify(logs);
+            long genesisTime = System.nanoTime() - start;
+
+            if (!isValid) {
+                throw new RuntimeException("Hash chain verification failed for size: " + size);
+            }
+
+            System.out.printf(Locale.US, "%d,%.0f,%.3f,%.3f\n",
+                    size,
+                    size / (appendTime / 1e9),
+                    entryTime / 1e6,
+                    genesisTime / 1e6);
+        }
+
+        // Parallel verification of the largest chain
+        System.out.println();
+        System.out.println("SampleSize,Threads,VerifyThroughput(events/s),Speedup");
+        long sequentialTime = 0;
+        for (int threads = 1; threads <= cores; threads = threads < cores ? Math.min(threads * 2, cores) : threads + 1) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                chain.verify(logs, pool); // Warm up
+                long start = System.nanoTime();
+                boolean isValid = chain.verify(logs, pool);
+                long verifyTime = System.nanoTime() - start;
+                if (!isValid) {
+                    throw new RuntimeException("Parallel verification failed with " + threads + " threads");
+                }
+                if (threads == 1) {
+                    sequentialTime = verifyTime;
+                }
+                System.out.printf(Locale.US, "%d,%d,%.0f,%.2f\n",
+                        logs.size(), threads,
+                        logs.size() / (verifyTime / 1e9),
+                        (double) sequentialTime / verifyTime);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+}
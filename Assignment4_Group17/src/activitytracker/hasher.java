@@ -0,0 +1,189 @@
+package activitytracker;
+
+import java.security.SecureRandom;
+import java.util.List;
+
+/**
+ * How a hash table turns a key into a slot: a hash of the key, which the
+ * table caches, and a mapping from that hash to an index. The strategies
+ * here are accepted by {@link linearProbingHashTable} and
+ * {@link separateChainingHashTable} at construction.
+ * <p>
+ * Each hasher also decides which capacities it works with: a table rounds
+ * every capacity it allocates through {@link #tableSize}.
+ */
+public interface hasher {
+
+    /**
+     * Hashes a key.
+     *
+     * @param key a non-null key
+     * @return a non-negative hash
+     */
+    int hash(Object key);
+
+    /**
+     * Maps a hash to a slot.
+     *
+     * @param hash     a hash returned by {@link #hash}
+     * @param capacity a capacity returned by {@link #tableSize}
+     * @return an index in {@code [0, capacity)}
+     */
+    int indexFor(int hash, int capacity);
+
+    /**
+     * Rounds a requested capacity to one this hasher can index.
+     *
+     * @param capacity the requested capacity
+     * @return the capacity to allocate, at least {@code capacity}
+     */
+    default int tableSize(int capacity) {
+        return capacity;
+    }
+
+    /**
+     * Hashes every key of a batch.
+     *
+     * @param keys non-null keys
+     * @return the hash of each key in the same order
+     */
+    default int[] hashAll(List<?> keys) {
+        int[] h = new int[keys.size()];
+        for (int i = 0; i < h.length; i++) {
+            h[i] = hash(keys.get(i));
+        }
+        return h;
+    }
+
+    /**
+     * Returns a value that, with high probability, differs between hashers
+     * that would lay the same keys out differently. Snapshots record it so a
+     * restore can tell whether the hashes and slots they saved still apply.
+     *
+     * @return this hasher's fingerprint
+     */
+    default long fingerprint() {
+        long fingerprint = tableSize(1000);
+        for (String probe : new String[] { "", "student42_login", "3f2acc7f-57c2-9bdb" }) {
+            int hash = hash(probe);
+            fingerprint = fingerprint * 31 + hash;
+            fingerprint = fingerprint * 31 + indexFor(hash, tableSize(1000));
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Murmur3's 32-bit finaliser: every input bit affects every output bit,
+     * so keys whose hash codes differ only in a few bits still spread out.
+     *
+     * @param h a hash code
+     * @return the mixed hash code
+     */
+    static int fmix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * The key's own hash code, with the slot taken modulo the capacity. This
+     * is what the tables have always done; it costs a division per probe and
+     * is only as good as the key's {@code hashCode}.
+     */
+    hasher MODULO = new hasher() {
+        @Override
+        public int hash(Object key) {
+            return key.hashCode() & 0x7FFFFFFF;
+        }
+
+        @Override
+        public int indexFor(int hash, int capacity) {
+            return hash % capacity;
+        }
+    };
+
+    /**
+     * The key's hash code run through {@link #fmix}, with the slot taken
+     * modulo the capacity. Breaks up runs of similar hash codes, such as
+     * those of structured IDs that differ only in their last characters.
+     */
+    hasher FMIX = new hasher() {
+        @Override
+        public int hash(Object key) {
+            return fmix(key.hashCode()) & 0x7FFFFFFF;
+        }
+
+        @Override
+        public int indexFor(int hash, int capacity) {
+            return hash % capacity;
+        }
+    };
+
+    /**
+     * The key's hash code run through {@link #fmix}, with capacities rounded
+     * up to a power of two so the slot is a mask of the low bits instead of a
+     * division.
+     */
+    hasher MASK = new hasher() {
+        @Override
+        public int hash(Object key) {
+            return fmix(key.hashCode()) & 0x7FFFFFFF;
+        }
+
+        @Override
+        public int indexFor(int hash, int capacity) {
+            return hash & (capacity - 1);
+        }
+
+        @Override
+        public int tableSize(int capacity) {
+            return powerOfTwoAtLeast(capacity);
+        }
+    };
+
+    /**
+     * Returns a hasher keyed with a random secret, which an attacker who does
+     * not know it cannot flood with colliding keys. Strings and other
+     * character sequences are hashed from their characters with SipHash-2-4;
+     * other keys only have their hash code mixed with the secret, which does
+     * not protect against keys whose hash codes already collide. Capacities
+     * are rounded up to a power of two.
+     *
+     * @return a new seeded hasher
+     */
+    static hasher seeded() {
+        SecureRandom random = new SecureRandom();
+        return new sipHasher(random.nextLong(), random.nextLong());
+    }
+
+    /**
+     * Returns a hasher keyed with the given 128-bit secret, as
+     * {@link #seeded()} does with a random one. Tables that must agree on
+     * their layout, for example a snapshot and the table restored from it,
+     * need the same secret.
+     *
+     * @param k0 the first half of the secret
+     * @param k1 the second half of the secret
+     * @return a seeded hasher
+     */
+    static hasher seeded(long k0, long k1) {
+        return new sipHasher(k0, k1);
+    }
+
+    /**
+     * @param capacity a requested capacity
+     * @return the smallest power of two that is at least {@code capacity}
+     */
+    static int powerOfTwoAtLeast(int capacity) {
+        if (capacity <= 1) {
+            return 1;
+        }
+        if (capacity > 1 << 30) {
+            return 1 << 30;
+        }
+        return Integer.highestOneBit(capacity - 1) << 1;
+    }
+}
@@ -0,0 +1,127 @@
+package activitytracker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * A benchmark for the hashing strategies: each {@link hasher} fills both
+ * tables with structured session IDs and with random UUIDs, then looks every
+ * key up. Besides the times it prints how the keys are laid out: how far
+ * entries sit from their home slot in the linear probing table, measured
+ * exactly, and how long the chains are in the separate chaining table, read
+ * from its {@link tableStats} histogram. That histogram folds every length
+ * from {@code HISTOGRAM_LENGTH - 1} up into its last slot, so chaining figures
+ * that reach it are printed as lower bounds ({@code >=31}).
+ */
+public class hasherBenchmark {
+
+    private static final int KEY_COUNT = 1_000_000;
+    private static final String[] ACTIVITIES = { "login", "submit", "view", "logout" };
+
+    /** Keys like {@code student42_submit_17}: few distinct characters vary. */
+    private static List<String> structuredKeys(int n) {
+        List<String> keys = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            keys.add("student" + (i % 10_000) + "_" + ACTIVITIES[i / 10_000 % ACTIVITIES.length] + "_"
+                    + i / (10_000 * ACTIVITIES.length));
+        }
+        return keys;
+    }
+
+    private static List<String> uuidKeys(int n) {
+        List<String> keys = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            keys.add(UUID.randomUUID().toString());
+        }
+        return keys;
+    }
+
+    public static void main(String[] args) {
+        List<String> keySetNames = List.of("Structured", "UUID");
+        List<List<String>> keySets = List.of(structuredKeys(KEY_COUNT), uuidKeys(KEY_COUNT));
+
+        List<String> hasherNames = List.of("MODULO", "FMIX", "MASK", "SEEDED");
+        List<hasher> hashers = List.of(hasher.MODULO, hasher.FMIX, hasher.MASK, hasher.seeded());
+
+        List<String> tableNames = List.of("LinearProbing", "SeparateChaining");
+        List<Function<hasher, simpleMap<String, Integer>>> factories = List.of(
+                h -> new linearProbingHashTable<>(16, h),
+                h -> new separateChainingHashTable<>(16, h));
+
+        System.out.println("Keys,Map,Hasher,InsertTime(ms),LookupThroughput(ops/s),Capacity,"
+                + "MeanLayout,P99Layout,MaxLayout");
+        for (int k = 0; k < keySets.size(); k++) {
+            List<String> keys = keySets.get(k);
+            for (int t = 0; t < tableNames.size(); t++) {
+                for (int h = 0; h < hashers.size(); h++) {
+                    Function<hasher, simpleMap<String, Integer>> factory = factories.get(t);
+                    run(factory.apply(hashers.get(h)), keys); // Warm up
+                    simpleMap<String, Integer> map = factory.apply(hashers.get(h));
+                    long[] times = run(map, keys);
+                    System.out.printf(Locale.US, "%s,%s,%s,%.3f,%.0f,%s\n",
+                            keySetNames.get(k), tableNames.get(t), hasherNames.get(h),
+                            times[0] / 1e6,
+                            keys.size() / (times[1] / 1e9),
+                            layout(map));
+                }
+            }
+        }
+    }
+
+    /**
+     * Inserts every key, then looks every key up.
+     *
+     * @return the insert and lookup times in nanoseconds
+     */
+    private static long[] run(simpleMap<String, Integer> map, List<String> keys) {
+        long start = System.nanoTime();
+        for (int i = 0; i < keys.size(); i++) {
+            map.put(keys.get(i), i);
+        }
+        long insertTime = System.nanoTime() - start;
+
+        long checksum = 0;
+        start = System.nanoTime();
+        for (String k : keys) {
+            checksum += map.get(k);
+        }
+        long lookupTime = System.nanoTime() - start;
+        if (checksum != (long) keys.size() * (keys.size() - 1) / 2) {
+            throw new IllegalStateException("Lookups returned the wrong values");
+        }
+        return new long[] { insertTime, lookupTime };
+    }
+
+    /**
+     * Returns the capacity, mean, p99 and maximum layout columns of a table.
+     * Linear probing displacements are exact; chain lengths come from the
+     * stats histogram and are marked as lower bounds once they reach its last
+     * slot.
+     */
+    private static String layout(simpleMap<String, Integer> map) {
+        if (map instanceof linearProbingHashTable<String, Integer> table) {
+            return String.format(Locale.US, "%d,%.3f,%d,%d", table.stats().getCapacity(), table.meanDisplacement(),
+                    table.displacementPercentile(0.99), table.maxDisplacement());
+        }
+        tableStats stats = ((separateChainingHashTable<String, Integer>) map).stats();
+        long[] histogram = stats.getLayoutHistogram();
+        long total = 0;
+        long weighted = 0;
+        for (int length = 0; length < histogram.length; length++) {
+            total += histogram[length];
+            weighted += length * histogram[length];
+        }
+        boolean clipped = histogram[histogram.length - 1] > 0;
+        return String.format(Locale.US, "%d,%s%.3f,%s,%s", stats.getCapacity(), clipped ? ">=" : "",
+                total == 0 ? 0.0 : (double) weighted / total,
+                lowerBound(stats.getLayoutPercentile(0.99)), lowerBound(stats.getLayoutPercentile(1.0)));
+    }
+
+    /** @return the length, marked as a lower bound if it is the histogram's last slot */
+    private static String lowerBound(int length) {
+        return length == tableStats.HISTOGRAM_LENGTH - 1 ? ">=" + length : String.valueOf(length);
+    }
+}
@@ -0,0 +1,184 @@
+package activitytracker;
+
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Authenticates log entries with HMAC-SHA256 before they are admitted to a
+ * {@link merkleLog}.
+ * <p>
+ * Each thread keeps its own {@link Mac}, initialised with the key once; after
+ * every tag the Mac resets to the keyed state, so the key schedule is not
+ * redone per entry. Batches of tags are packed end to end in one array, and
+ * entries are encoded into a reused per-thread buffer, so tagging and
+ * verifying a batch allocates nothing per entry.
+ */
+public class hmacAuthenticator {
+
+    /** Length in bytes of every tag. */
+    public static final int TAG_LENGTH = 32;
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int PARALLEL_THRESHOLD = 1_024;
+
+    private final SecretKeySpec key;
+    private final ThreadLocal<Scratch> scratch;
+
+    /**
+     * Constructs an authenticator for a secret key.
+     */
+    public hmacAuthenticator(byte[] key) {
+        if (key == null || key.length == 0) {
+            throw new IllegalArgumentException("Key cannot be empty");
+        }
+        this.key = new SecretKeySpec(key, ALGORITHM);
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(this.key));
+    }
+
+    /**
+     * Returns the tag of a single entry.
+     */
+    public byte[] tag(String entry) {
+        byte[] out = new byte[TAG_LENGTH];
+        scratch.get().tag(entry, out, 0);
+        return out;
+    }
+
+    /**
+     * Returns the tags of a batch of entries, packed end to end in entry
+     * order.
+     */
+    public byte[] tagBatch(List<String> entries) {
+        byte[] tags = new byte[entries.size() * TAG_LENGTH];
+        Scratch s = scratch.get();
+        for (int i = 0; i < entries.size(); i++) {
+            s.tag(entries.get(i), tags, i * TAG_LENGTH);
+        }
+        return tags;
+    }
+
+    /**
+     * Verifies a batch of entries against their packed tags.
+     */
+    public boolean verifyBatch(List<String> entries, byte[] tags) {
+        return tags.length == entries.size() * TAG_LENGTH && verifyRange(entries, tags, 0, entries.size());
+    }
+
+    /**
+     * Verifies a batch of entries against their packed tags, splitting the
+     * batch across the given pool.
+     */
+    public boolean verifyBatch(List<String> entries, byte[] tags, ForkJoinPool pool) {
+        return tags.length == entries.size() * TAG_LENGTH
+                && pool.invoke(new VerifyTask(entries, tags, 0, entries.size()));
+    }
+
+    /**
+     * Verifies a batch on the given pool and, only if every tag matches,
+     * appends the entries to a log.
+     *
+     * @return the index of the first appended entry
+     * @throws IllegalArgumentException if any tag does not match
+     */
+    public int ingest(List<String> entries, byte[] tags, merkleLog log, ForkJoinPool pool) {
+        if (!verifyBatch(entries, tags, pool)) {
+            throw new IllegalArgumentException("Batch failed authentication");
+        }
+        int first = log.size();
+        for (String entry : entries) {
+            log.append(entry);
+        }
+        return first;
+    }
+
+    private boolean verifyRange(List<String> entries, byte[] tags, int from, int to) {
+        Scratch s = scratch.get();
+        boolean valid = true;
+        for (int i = from; i < to; i++) {
+            s.tag(entries.get(i), s.tag, 0);
+            valid &= constantTimeEquals(s.tag, tags, i * TAG_LENGTH);
+        }
+        return valid;
+    }
+
+    /**
+     * Compares a tag with a packed tag without an early exit, so timing does
+     * not reveal how many leading bytes matched.
+     */
+    private static boolean constantTimeEquals(byte[] tag, byte[] tags, int offset) {
+        int difference = 0;
+        for (int i = 0; i < TAG_LENGTH; i++) {
+            difference |= tag[i] ^ tags[offset + i];
+        }
+        return difference == 0;
+    }
+
+    /**
+     * Verifies a range of a batch, splitting it in half until it is small
+     * enough to run directly.
+     */
+    @SuppressWarnings("serial")
+    private final class VerifyTask extends RecursiveTask<Boolean> {
+        private final List<String> entries;
+        private final byte[] tags;
+        private final int from, to;
+
+        VerifyTask(List<String> entries, byte[] tags, int from, int to) {
+            this.entries = entries;
+            this.tags = tags;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Boolean compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                return verifyRange(entries, tags, from, to);
+            }
+            int mid = (from + to) >>> 1;
+            VerifyTask right = new VerifyTask(entries, tags, mid, to);
+            right.fork();
+            boolean left = new VerifyTask(entries, tags, from, mid).compute();
+            return right.join() && left;
+        }
+    }
+
+    /**
+     * A thread's keyed Mac and buffers.
+     */
+    private static final class Scratch {
+        final Mac mac;
+        final byte[] tag = new byte[TAG_LENGTH];
+        byte[] text = new byte[256];
+
+        Scratch(SecretKeySpec key) {
+            try {
+                mac = Mac.getInstance(ALGORITHM);
+                mac.init(key);
+            } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+                throw new IllegalStateException("HMAC-SHA256 is not available", e);
+            }
+        }
+
+        void tag(String entry, byte[] out, int outOffset) {
+            int max = entry.length() * 3;
+            if (text.length < max) {
+                text = new byte[Math.max(max, text.length * 2)];
+            }
+            int length = merkleTree.encodeUtf8(entry, text);
+            mac.update(text, 0, length);
+            try {
+                mac.doFinal(out, outOffset);
+            } catch (ShortBufferException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package activitytracker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A benchmark for authenticated ingestion: batches are verified with
+ * HMAC-SHA256 on 1 to N worker threads and appended to a {@link merkleLog},
+ * against appending the same events unauthenticated.
+ */
+public class hmacBenchmark {
+
+    private static final int EVENT_COUNT = 1_000_000;
+    private static final int BATCH_SIZE = 10_000;
+
+    private static List<String> generateLogs(int count) {
+        List<String> data = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            data.add("log_event_student" + (i % 100) + "_timestamp_" + System.nanoTime());
+        }
+        return data;
+    }
+
+    public static void main(String[] args) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        byte[] key = new byte[32];
+        new Random().nextBytes(key);
+        hmacAuthenticator authenticator = new hmacAuthenticator(key);
+
+        List<String> logs = generateLogs(EVENT_COUNT);
+        List<List<String>> batches = new ArrayList<>();
+        for (int i = 0; i < logs.size(); i += BATCH_SIZE) {
+            batches.add(logs.subList(i, Math.min(i + BATCH_SIZE, logs.size())));
+        }
+
+        // Sign every batch, as the exam clients would
+        long start = System.nanoTime();
+        List<byte[]> tags = new ArrayList<>(batches.size());
+        for (List<String> batch : batches) {
+            tags.add(authenticator.tagBatch(batch));
+        }
+        long tagTime = System.nanoTime() - start;
+
+        // Baseline: append without authentication
+        unauthenticated(batches); // Warm up
+        start = System.nanoTime();
+        unauthenticated(batches);
+        long plainTime = System.nanoTime() - start;
+
+        System.out.printf(Locale.US, "Tag throughput: %.0f events/s on one thread\n", EVENT_COUNT / (tagTime / 1e9));
+        System.out.printf(Locale.US, "Unauthenticated append: %.0f events/s\n", EVENT_COUNT / (plainTime / 1e9));
+        System.out.println();
+        System.out.println("Events,BatchSize,Threads,VerifyThroughput(events/s),VerifyThroughputPerCore(events/s),"
+                + "IngestThroughput(events/s),IngestVsUnauthenticated");
+
+        for (int threads = 1; threads <= cores; threads = threads < cores ? Math.min(threads * 2, cores) : threads + 1) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                verify(authenticator, batches, tags, pool); // Warm up
+                start = System.nanoTime();
+                verify(authenticator, batches, tags, pool);
+                long verifyTime = System.nanoTime() - start;
+
+                merkleLog log = new merkleLog();
+                start = System.nanoTime();
+                for (int b = 0; b < batches.size(); b++) {
+                    authenticator.ingest(batches.get(b), tags.get(b), log, pool);
+                }
+                long ingestTime = System.nanoTime() - start;
+                if (log.size() != EVENT_COUNT) {
+                    throw new IllegalStateException();
+                }
+
+                double verifyThroughput = EVENT_COUNT / (verifyTime / 1e9);
+                System.out.printf(Locale.US, "%d,%d,%d,%.0f,%.0f,%.0f,%.2f\n",
+                        EVENT_COUNT, BATCH_SIZE, threads,
+                        verifyThroughput,
+                        verifyThroughput / threads,
+                        EVENT_COUNT / (ingestTime / 1e9),
+                        (double) plainTime / ingestTime);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private static void unauthenticated(List<List<String>> batches) {
+        merkleLog log = new merkleLog();
+        for (List<String> batch : batches) {
+            for (String event : batch) {
+                log.append(event);
+            }
+        }
+    }
+
+    private static void verify(hmacAuthenticator authenticator, List<List<String>> batches, List<byte[]> tags,
+            ForkJoinPool pool) {
+        for (int b = 0; b < batches.size(); b++) {
+            if (!authenticator.verifyBatch(batches.get(b), tags.get(b), pool)) {
+                throw new RuntimeException("Batch " + b + " failed authentication");
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package activitytracker;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A benchmark for full scans of each map: time and bytes allocated by
+ * {@code forEach}, by iterating the live entry and key views, and by parallel
+ * streams over the values on 1 to N threads.
+ */
+public class iterationBenchmark {
+
+    private static final int KEY_COUNT = 1_000_000;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static List<String> generateKeys(int n) {
+        List<String> keys = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            keys.add(UUID.randomUUID().toString());
+        }
+        return keys;
+    }
+
+    private static long allocatedBytes() {
+        return THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        List<String> keys = generateKeys(KEY_COUNT);
+
+        System.out.println("Map,Scan,Time(ms),Allocated(MB)");
+        List<simpleMap<String, Integer>> maps = List.of(
+                new linearProbingHashTable<>(16),
+                new separateChainingHashTable<>(16),
+                new flatLinearProbingHashTable<>(16),
+                new concurrentChainingHashTable<>(16),
+                new offHeapStringMap(16));
+        for (simpleMap<String, Integer> map : maps) {
+            for (int i = 0; i < keys.size(); i++) {
+                map.put(keys.get(i), i);
+            }
+            String name = map.getClass().getSimpleName();
+            for (int round = 0; round < 2; round++) { // The first round warms up
+                boolean report = round == 1;
+                scan(name, "forEach", report, () -> {
+                    long[] sum = { 0 };
+                    map.forEach((k, v) -> sum[0] += v);
+                    return sum[0];
+                });
+                scan(name, "entries", report, () -> {
+                    long sum = 0;
+                    for (simpleMap.Entry<String, Integer> e : map.entries()) {
+                        sum += e.value();
+                    }
+                    return sum;
+                });
+                scan(name, "keys", report, () -> {
+                    long sum = 0;
+                    for (String k : map.keys()) {
+                        sum += k.length();
+                    }
+                    return sum;
+                });
+            }
+        }
+
+        System.out.println();
+        System.out.println("Map,Threads,ParallelStreamTime(ms),Speedup");
+        for (simpleMap<String, Integer> map : maps) {
+            String name = map.getClass().getSimpleName();
+            long single = 0;
+            for (int threads = 1; threads <= cores; threads = threads < cores ? Math.min(threads * 2, cores)
+                    : threads + 1) {
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                try {
+                    pool.submit(() -> map.values().parallelStream().mapToLong(v -> v).sum()).get(); // Warm up
+                    long start = System.nanoTime();
+                    long sum = pool.submit(() -> map.values().parallelStream().mapToLong(v -> v).sum()).get();
+                    long time = System.nanoTime() - start;
+                    if (sum != (long) KEY_COUNT * (KEY_COUNT - 1) / 2) {
+                        throw new IllegalStateException("Parallel sum " + sum + " is wrong for " + name);
+                    }
+                    if (threads == 1) {
+                        single = time;
+                    }
+                    System.out.printf(Locale.US, "%s,%d,%.3f,%.2f\n", name, threads, time / 1e6,
+                            (double) single / time);
+                } finally {
+                    pool.shutdown();
+                }
+            }
+        }
+
+        for (simpleMap<String, Integer> map : maps) {
+            if (map instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private interface Scan {
+        long run();
+    }
+
+    private static void scan(String name, String scanName, boolean report, Scan scan) {
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        long result = scan.run();
+        long time = System.nanoTime() - start;
+        allocated = allocatedBytes() - allocated;
+        if (result == 0) {
+            throw new IllegalStateException("Empty scan of " + name);
+        }
+        if (report) {
+            System.out.printf(Locale.US, "%s,%s,%.3f,%.2f\n", name, scanName, time / 1e6, allocated / 1e6);
+        }
+    }
+}
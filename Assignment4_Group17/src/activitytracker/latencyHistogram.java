@@ -0,0 +1,111 @@
+package activitytracker;
+
+/**
+ * A latency histogram in the style of HdrHistogram: values below 128 are
+ * counted exactly, and above that every power of two is split into 64 equal
+ * buckets, so any recorded value is reported within 1/64 (about 1.6%) of its
+ * true value while the whole {@code long} range fits in under 4,000 counters.
+ * <p>
+ * Recording is a few shifts and an array increment, with no allocation. A
+ * histogram is not thread-safe; give each thread its own and {@link #add}
+ * them together afterwards.
+ */
+public class latencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT / 2;
+
+    private final long[] counts = new long[SUB_BUCKET_COUNT + (64 - SUB_BUCKET_BITS) * SUB_BUCKET_HALF];
+    private long totalCount;
+    private long sum;
+    private long max;
+
+    /**
+     * Records one value.
+     *
+     * @param value the value, usually a latency in nanoseconds; negative
+     *              values are counted as zero
+     */
+    public void record(long value) {
+        value = Math.max(value, 0);
+        counts[indexOf(value)]++;
+        totalCount++;
+        sum += value;
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds every value recorded by another histogram to this one.
+     *
+     * @param other the histogram to add
+     */
+    public void add(latencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * @param value a non-negative value
+     * @return the bucket counting it
+     */
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        // Shift the value down so its top SUB_BUCKET_BITS bits remain
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF + (int) (value >>> shift) - SUB_BUCKET_HALF;
+    }
+
+    /**
+     * @param index a bucket
+     * @return the largest value the bucket counts
+     */
+    private static long highestValueIn(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF + 1;
+        long top = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+        return ((top + 1) << shift) - 1;
+    }
+
+    /** @return the number of values recorded */
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /** @return the largest value recorded, exactly, or 0 if none */
+    public long getMax() {
+        return max;
+    }
+
+    /** @return the mean of the values recorded, exactly, or 0 if none */
+    public double getMean() {
+        return totalCount == 0 ? 0.0 : (double) sum / totalCount;
+    }
+
+    /**
+     * Returns the value below which a fraction of the recorded values fall,
+     * rounded up to the top of its bucket but never above {@link #getMax()}.
+     *
+     * @param percentile a fraction between 0 and 1, such as 0.999
+     * @return the value at that percentile, or 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long target = Math.max(1, (long) Math.ceil(percentile * totalCount));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(highestValueIn(i), max);
+            }
+        }
+        return max;
+    }
+}
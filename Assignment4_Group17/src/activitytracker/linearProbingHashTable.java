@@ -1,13 +1,31 @@
 package activitytracker;
 
-import java.util.ArrayList;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 /**
  * A hash table implementation using linear probing for collision resolution.
  * This class implements the SimpleMap interface.
+ * <p>
+ * In {@link Probing#ROBIN_HOOD} mode an insert takes the slot of any entry that
+ * sits closer to its home slot than the new key does, which keeps probe lengths
+ * short and even at high load. Lookups for missing keys stop as soon as they
+ * meet an entry with a smaller displacement, and removal shifts the following
+ * entries back instead of leaving tombstones.
+ * <p>
+ * Keys are hashed and mapped to slots by a {@link hasher}: the key's own hash
+ * code taken modulo the capacity unless another one is given at construction.
  *
  * @param <K> the type of keys maintained by this map
  * @param <V> the type of values
@@ -15,47 +33,103 @@ import java.util.List;
 public class linearProbingHashTable<K, V> implements simpleMap<K, V> {
 
     private static final double LOAD_FACTOR = 0.75;
+    private static final double TOMBSTONE_RATIO = 0.25;
+    private static final int MIGRATION_STEP = 64;
+    private static final int BATCH_GROUP = 16;
+    private static final int SNAPSHOT_MAGIC = 0x4C504854; // "LPHT"
+    private static final int SNAPSHOT_VERSION = 2;
+    private static final int SNAPSHOT_BUFFER = 1 << 16;
+
+    /** Marks an old-table slot whose entry has already been migrated. */
+    private static final Entry<?, ?> MOVED = new Entry<>(null, null, 0);
+    static {
+        MOVED.isDeleted = true;
+    }
+
+    /**
+     * The collision resolution strategy used by the table.
+     */
+    public enum Probing {
+        /** Plain linear probing with tombstones on removal. */
+        LINEAR,
+        /** Robin Hood linear probing with backward-shift removal. */
+        ROBIN_HOOD
+    }
 
     /**
-     * Returns a collection view of the keys in the hash table.
+     * Returns a live collection view of the keys in the hash table.
      *
      * @return a collection of keys
      */
     @Override
     public Collection<K> keys() {
-        return Arrays.stream(table)
-                .filter(e -> e != null && !e.isDeleted)
-                .map(e -> e.key)
-                .toList();
+        return slotSpliterator.view(this::size,
+                () -> spliterator(e -> e.key, Spliterator.DISTINCT | Spliterator.NONNULL));
     }
 
     /**
-     * Returns a collection view of the values in the hash table.
+     * Returns a live collection view of the values in the hash table.
      *
      * @return a collection of values
      */
     @Override
     public Collection<V> values() {
-        return Arrays.stream(table)
-                .filter(e -> e != null && !e.isDeleted)
-                .map(entry -> entry.value)
-                .toList();
+        return slotSpliterator.view(this::size, () -> spliterator(e -> e.value, 0));
     }
 
     /**
-     * Returns a collection view of the entries in the hash table.
+     * Returns a live collection view of the entries in the hash table. The
+     * table's own entries are handed out, so nothing is allocated per entry.
      *
      * @return a collection of key-value entries
      */
     @Override
     public Collection<simpleMap.Entry<K, V>> entries() {
-        List<simpleMap.Entry<K, V>> result = new ArrayList<>();
-        for (Entry<K, V> e : table) {
+        return slotSpliterator.view(this::size,
+                () -> spliterator(e -> e, Spliterator.DISTINCT | Spliterator.NONNULL));
+    }
+
+    /**
+     * Performs an action for every live mapping, including those still waiting
+     * in the old table during an incremental resize.
+     *
+     * @param action the action to perform for each mapping
+     */
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        forEachLive(table, action);
+        if (oldTable != null) {
+            forEachLive(oldTable, action);
+        }
+    }
+
+    private static <K, V> void forEachLive(Entry<K, V>[] slots, BiConsumer<? super K, ? super V> action) {
+        for (Entry<K, V> e : slots) {
             if (e != null && !e.isDeleted) {
-                result.add(new Entry<>(e.key, e.value));
+                action.accept(e.key, e.value);
             }
         }
-        return result;
+    }
+
+    /**
+     * Creates a spliterator over the live entries of the table. The slots of
+     * the old table during an incremental resize follow those of the current
+     * table.
+     *
+     * @param extract         maps an entry to the element handed out
+     * @param characteristics the characteristics of the elements
+     * @return a spliterator that splits by slot range
+     */
+    private <E> Spliterator<E> spliterator(Function<Entry<K, V>, E> extract, int characteristics) {
+        Entry<K, V>[] current = table;
+        Entry<K, V>[] old = oldTable;
+        int slots = current.length + (old == null ? 0 : old.length);
+        return new slotSpliterator<E>((slot, action) -> {
+            Entry<K, V> e = slot < current.length ? current[slot] : old[slot - current.length];
+            if (e != null && !e.isDeleted) {
+                action.accept(extract.apply(e));
+            }
+        }, 0, slots, size, characteristics);
     }
 
     /**
@@ -64,6 +138,7 @@ public class linearProbingHashTable<K, V> implements simpleMap<K, V> {
     private static class Entry<K, V> implements simpleMap.Entry<K, V> {
         K key;
         V value;
+        final int hash;
         boolean isDeleted;
 
         /**
@@ -71,10 +146,12 @@ public class linearProbingHashTable<K, V> implements simpleMap<K, V> {
          *
          * @param key   the key
          * @param value the value
+         * @param hash  the non-negative hash code of the key
          */
-        Entry(K key, V value) {
+        Entry(K key, V value, int hash) {
             this.key = key;
             this.value = value;
+            this.hash = hash;
             this.isDeleted = false;
         }
 
@@ -93,16 +170,106 @@ public class linearProbingHashTable<K, V> implements simpleMap<K, V> {
 
     private Entry<K, V>[] table;
     private int size;
+    private int tombstones;
+    private final double loadFactor;
+    private final Probing probing;
+    private final resizeMode resizing;
+    private final hasher hashing;
+    private final tableStats.Recorder stats;
+
+    // Slots still waiting to be moved during an incremental resize
+    private Entry<K, V>[] oldTable;
+    private int migrateIndex;
 
     /**
      * Constructs a hash table with a specified initial capacity.
      *
      * @param capacity initial number of slots
      */
-    @SuppressWarnings("unchecked")
     public linearProbingHashTable(int capacity) {
-        table = new Entry[capacity];
+        this(capacity, LOAD_FACTOR, Probing.LINEAR);
+    }
+
+    /**
+     * Constructs a hash table with a specified initial capacity, load factor and
+     * probing strategy.
+     *
+     * @param capacity   initial number of slots
+     * @param loadFactor the fraction of slots that may be used before resizing,
+     *                   strictly between 0 and 1
+     * @param probing    the collision resolution strategy
+     */
+    @SuppressWarnings("unchecked")
+    public linearProbingHashTable(int capacity, double loadFactor, Probing probing) {
+        this(capacity, loadFactor, probing, resizeMode.FULL);
+    }
+
+    /**
+     * Constructs a hash table with a specified initial capacity, load factor,
+     * probing strategy and resize mode.
+     *
+     * @param capacity   initial number of slots
+     * @param loadFactor the fraction of slots that may be used before resizing,
+     *                   strictly between 0 and 1
+     * @param probing    the collision resolution strategy
+     * @param resizing   how entries are moved when the table grows
+     */
+    public linearProbingHashTable(int capacity, double loadFactor, Probing probing, resizeMode resizing) {
+        this(capacity, loadFactor, probing, resizing, false);
+    }
+
+    /**
+     * Constructs a hash table with a specified initial capacity, load factor,
+     * probing strategy and resize mode, optionally recording operation stats
+     * for {@link #stats()}.
+     *
+     * @param capacity    initial number of slots
+     * @param loadFactor  the fraction of slots that may be used before
+     *                    resizing, strictly between 0 and 1
+     * @param probing     the collision resolution strategy
+     * @param resizing    how entries are moved when the table grows
+     * @param recordStats whether to count lookups and time resizes
+     */
+    public linearProbingHashTable(int capacity, double loadFactor, Probing probing, resizeMode resizing,
+            boolean recordStats) {
+        this(capacity, loadFactor, probing, resizing, recordStats, hasher.MODULO);
+    }
+
+    /**
+     * Constructs a hash table with a specified initial capacity and hashing
+     * strategy, and the default load factor, probing and resize mode.
+     *
+     * @param capacity initial number of slots, rounded by the hasher
+     * @param hashing  how keys are hashed and mapped to slots
+     */
+    public linearProbingHashTable(int capacity, hasher hashing) {
+        this(capacity, LOAD_FACTOR, Probing.LINEAR, resizeMode.FULL, false, hashing);
+    }
+
+    /**
+     * Constructs a hash table with every setting specified.
+     *
+     * @param capacity    initial number of slots, rounded by the hasher
+     * @param loadFactor  the fraction of slots that may be used before
+     *                    resizing, strictly between 0 and 1
+     * @param probing     the collision resolution strategy
+     * @param resizing    how entries are moved when the table grows
+     * @param recordStats whether to count lookups and time resizes
+     * @param hashing     how keys are hashed and mapped to slots
+     */
+    @SuppressWarnings("unchecked")
+    public linearProbingHashTable(int capacity, double loadFactor, Probing probing, resizeMode resizing,
+            boolean recordStats, hasher hashing) {
+        if (loadFactor <= 0 || loadFactor >= 1) {
+            throw new IllegalArgumentException("Load factor must be between 0 and 1");
+        }
+        this.hashing = hashing;
+        table = new Entry[hashing.tableSize(capacity)];
         size = 0;
+        this.loadFactor = loadFactor;
+        this.probing = probing;
+        this.resizing = resizing;
+        this.stats = recordStats ? new tableStats.Recorder(statsName()) : null;
     }
 
     /**
@@ -113,17 +280,19 @@ public class linearProbingHashTable<K, V> implements simpleMap<K, V> {
      * @return hashed index
      */
     private int hash(K key, int capacity) {
-        return (key.hashCode() & 0x7FFFFFFF) % capacity;
+        return hashing.indexFor(hashing.hash(key), capacity);
     }
 
     /**
-     * Hash function using current table length.
+     * Returns how far an entry sits from its home slot.
      *
-     * @param key the key
-     * @return hashed index
+     * @param entry the entry
+     * @param index the slot holding the entry
+     * @return the number of probes past the home slot
      */
-    private int hash(K key) {
-        return hash(key, table.length);
+    private int displacement(Entry<K, V> entry, int index) {
+        int home = hashing.indexFor(entry.hash, table.length);
+        return index >= home ? index - home : index + table.length - home;
     }
 
     /**
@@ -135,63 +304,259 @@ public class linearProbingHashTable<K, V> implements simpleMap<K, V> {
      */
     @Override
     public V put(K key, V value) {
-        if ((double) (size + 1) / table.length > LOAD_FACTOR) {
+        migrateStep();
+        if ((double) (size + tombstones + 1) / table.length > loadFactor) {
             resize();
         }
 
-        int index = hash(key);
+        if (oldTable != null) {
+            int oldIndex = findInOld(key);
+            if (oldIndex >= 0) {
+                V oldValue = oldTable[oldIndex].value;
+                oldTable[oldIndex].value = value;
+                return oldValue;
+            }
+        }
+        return putHashed(key, hashing.hash(key), value);
+    }
+
+    /**
+     * Inserts or updates a mapping in the current table, which is known to
+     * have room for it and not to hold the key in an old table.
+     *
+     * @param key   the key
+     * @param h     the non-negative hash code of the key
+     * @param value the value
+     * @return the previous value or null if new
+     */
+    private V putHashed(K key, int h, V value) {
+        if (probing == Probing.ROBIN_HOOD) {
+            return putRobinHood(key, h, value);
+        }
+
+        int index = hashing.indexFor(h, table.length);
         int startIndex = index;
+        int firstDeleted = -1;
 
+        // Keep probing past tombstones so an existing mapping further along the
+        // chain is updated instead of duplicated.
         do {
             Entry<K, V> entry = table[index];
-            if (entry == null || entry.isDeleted) {
-                table[index] = new Entry<>(key, value);
+            if (entry == null)
+                break;
+            if (entry.isDeleted) {
+                if (firstDeleted < 0)
+                    firstDeleted = index;
+            } else if (entry.key.equals(key)) {
+                V oldValue = entry.value;
+                entry.value = value;
+                return oldValue;
+            }
+            index = (index + 1) % table.length;
+        } while (index != startIndex);
+
+        if (firstDeleted >= 0) {
+            index = firstDeleted;
+            tombstones--;
+        } else if (table[index] != null) {
+            throw new IllegalStateException("HashTable is full");
+        }
+        table[index] = new Entry<>(key, value, h);
+        size++;
+        return null;
+    }
+
+    /**
+     * Inserts or updates a mapping using Robin Hood probing. Walking the probe
+     * sequence, the entry being placed swaps with any resident entry that has a
+     * smaller displacement, and that resident then continues the walk.
+     *
+     * @param key   the key
+     * @param h     the non-negative hash code of the key
+     * @param value the value
+     * @return the previous value or null if new
+     */
+    private V putRobinHood(K key, int h, V value) {
+        int index = hashing.indexFor(h, table.length);
+        int dist = 0;
+        Entry<K, V> carried = null;
+
+        while (true) {
+            Entry<K, V> entry = table[index];
+            if (entry == null) {
+                table[index] = carried != null ? carried : new Entry<>(key, value, h);
                 size++;
                 return null;
             }
-            if (entry.key.equals(key)) {
+            if (carried == null && entry.hash == h && entry.key.equals(key)) {
                 V oldValue = entry.value;
                 entry.value = value;
                 return oldValue;
             }
+            // A resident closer to home than us means the key is not present.
+            int residentDist = displacement(entry, index);
+            if (residentDist < dist) {
+                if (carried == null) {
+                    carried = new Entry<>(key, value, h);
+                }
+                table[index] = carried;
+                carried = entry;
+                dist = residentDist;
+            }
             index = (index + 1) % table.length;
-        } while (index != startIndex);
-
-        throw new IllegalStateException("HashTable is full");
+            dist++;
+        }
     }
 
     /**
-     * Doubles the table capacity and reinserts all entries.
+     * Doubles the table capacity and reinserts all entries. When most of the
+     * occupied slots are tombstones the table is rehashed at its current
+     * capacity instead, which gives the slots back without growing.
+     * <p>
+     * In incremental mode a growing table keeps the old slots and moves them a
+     * few at a time on later operations instead.
      */
     private void resize() {
+        int fromCapacity = table.length;
+        if (stats != null) {
+            stats.beginResize();
+        }
+        finishMigration();
+
+        int newCapacity = table.length;
+        if ((double) (size + 1) / table.length > loadFactor / 2) {
+            newCapacity = hashing.tableSize(newCapacity * 2);
+        }
+
+        if (resizing == resizeMode.INCREMENTAL && newCapacity > table.length) {
+            @SuppressWarnings("unchecked")
+            Entry<K, V>[] newTable = new Entry[newCapacity];
+            oldTable = table;
+            migrateIndex = 0;
+            table = newTable;
+            tombstones = 0;
+        } else {
+            rehash(newCapacity);
+        }
+        if (stats != null) {
+            stats.endResize(fromCapacity, table.length, size);
+        }
+    }
+
+    /**
+     * Rehashes the table outside of {@link #resize()}, timing it as a resize
+     * when stats are recorded.
+     *
+     * @param newCapacity the number of slots in the new table
+     */
+    private void recordedRehash(int newCapacity) {
+        int fromCapacity = table.length;
+        if (stats != null) {
+            stats.beginResize();
+        }
+        rehash(newCapacity);
+        if (stats != null) {
+            stats.endResize(fromCapacity, newCapacity, size);
+        }
+    }
+
+    /**
+     * Moves up to {@link #MIGRATION_STEP} slots from the old table into the
+     * current one. Moved slots are marked rather than cleared so the probe
+     * sequences of the entries still waiting stay intact.
+     */
+    @SuppressWarnings("unchecked")
+    private void migrateStep() {
+        if (oldTable == null) {
+            return;
+        }
+        int end = Math.min(migrateIndex + MIGRATION_STEP, oldTable.length);
+        for (; migrateIndex < end; migrateIndex++) {
+            Entry<K, V> entry = oldTable[migrateIndex];
+            if (entry != null) {
+                if (!entry.isDeleted) {
+                    reinsert(entry);
+                }
+                oldTable[migrateIndex] = (Entry<K, V>) MOVED;
+            }
+        }
+        if (migrateIndex == oldTable.length) {
+            oldTable = null;
+        }
+    }
+
+    /**
+     * Moves every remaining slot from the old table into the current one.
+     */
+    private void finishMigration() {
+        while (oldTable != null) {
+            migrateStep();
+        }
+    }
+
+    /**
+     * Finds a key among the entries not yet migrated from the old table.
+     *
+     * @param key the key
+     * @return the old-table slot index, or -1 if not found
+     */
+    private int findInOld(K key) {
+        int index = hash(key, oldTable.length);
+        for (int probes = 0; probes < oldTable.length; probes++) {
+            Entry<K, V> entry = oldTable[index];
+            if (entry == null)
+                return -1;
+            if (!entry.isDeleted && entry.key.equals(key))
+                return index;
+            index = (index + 1) % oldTable.length;
+        }
+        return -1;
+    }
+
+    /**
+     * Reinserts all live entries into a new table of the given capacity,
+     * dropping every tombstone.
+     *
+     * @param newCapacity the number of slots in the new table
+     */
+    private void rehash(int newCapacity) {
         Entry<K, V>[] oldTable = table;
-        int newCapacity = oldTable.length * 2;
 
         @SuppressWarnings("unchecked")
         Entry<K, V>[] newTable = new Entry[newCapacity];
         table = newTable;
-        size = 0;
+        tombstones = 0;
 
         for (Entry<K, V> entry : oldTable) {
             if (entry != null && !entry.isDeleted) {
-                reinsert(entry.key, entry.value);
+                reinsert(entry);
             }
         }
     }
 
     /**
-     * Reinserts an entry into the table during resizing.
+     * Reinserts an existing entry into the table during resizing, reusing its
+     * cached hash.
      *
-     * @param key   the key
-     * @param value the value
+     * @param entry the entry to place
      */
-    private void reinsert(K key, V value) {
-        int index = hash(key, table.length);
+    private void reinsert(Entry<K, V> entry) {
+        int index = hashing.indexFor(entry.hash, table.length);
+        int dist = 0;
         while (table[index] != null) {
+            if (probing == Probing.ROBIN_HOOD) {
+                int residentDist = displacement(table[index], index);
+                if (residentDist < dist) {
+                    Entry<K, V> resident = table[index];
+                    table[index] = entry;
+                    entry = resident;
+                    dist = residentDist;
+                }
+            }
             index = (index + 1) % table.length;
+            dist++;
         }
-        table[index] = new Entry<>(key, value);
-        size++;
+        table[index] = entry;
     }
 
     /**
@@ -202,19 +567,86 @@ public class linearProbingHashTable<K, V> implements simpleMap<K, V> {
      */
     @Override
     public V get(K key) {
-        int index = hash(key);
+        migrateStep();
+
+        int h = hashing.hash(key);
+        int index = find(key, h);
+        if (index >= 0) {
+            if (stats != null) {
+                stats.recordLookup(lookupLength(h, index), true);
+            }
+            return table[index].value;
+        }
+
+        V value = null;
+        boolean found = false;
+        if (oldTable != null) {
+            int oldIndex = findInOld(key);
+            if (oldIndex >= 0) {
+                value = oldTable[oldIndex].value;
+                found = true;
+            }
+        }
+        if (stats != null) {
+            stats.recordLookup(lookupLength(h, -1), found);
+        }
+        return value;
+    }
+
+    /**
+     * Returns how many slots of the current table a lookup probes. It is only
+     * worked out when stats are recorded, so plain lookups pay nothing for it.
+     *
+     * @param h     the non-negative hash code of the key
+     * @param index the slot the key was found in, or -1 if it was not found
+     * @return the number of slots probed
+     */
+    private int lookupLength(int h, int index) {
+        if (index >= 0) {
+            return displacement(table[index], index) + 1;
+        }
+        int slot = hashing.indexFor(h, table.length);
+        for (int dist = 0; dist < table.length; dist++) {
+            Entry<K, V> entry = table[slot];
+            if (entry == null || (probing == Probing.ROBIN_HOOD && displacement(entry, slot) < dist)) {
+                return dist + 1;
+            }
+            slot = (slot + 1) % table.length;
+        }
+        return table.length;
+    }
+
+    /**
+     * Finds the slot of a key with plain linear probing, skipping tombstones.
+     *
+     * @param key the key
+     * @return the slot index, or -1 if not found
+     */
+    private int findLinear(K key) {
+        return findLinear(key, hashing.hash(key));
+    }
+
+    /**
+     * Finds the slot of a key with plain linear probing, skipping tombstones.
+     *
+     * @param key the key
+     * @param h   the non-negative hash code of the key
+     * @return the slot index, or -1 if not found
+     */
+    private int findLinear(K key, int h) {
+        int index = hashing.indexFor(h, table.length);
         int startIndex = index;
 
         do {
             Entry<K, V> entry = table[index];
             if (entry == null)
-                return null;
+                return -1;
             if (!entry.isDeleted && entry.key.equals(key))
-                return entry.value;
+                return index;
             index = (index + 1) % table.length;
         } while (index != startIndex);
 
-        return null;
+        return -1;
     }
 
     /**
@@ -224,23 +656,319 @@ public class linearProbingHashTable<K, V> implements simpleMap<K, V> {
      * @return the value removed, or null if not found
      */
     @Override
+    @SuppressWarnings("unchecked")
     public V remove(K key) {
-        int index = hash(key);
-        int startIndex = index;
+        migrateStep();
 
-        do {
-            Entry<K, V> entry = table[index];
-            if (entry == null)
-                return null;
-            if (!entry.isDeleted && entry.key.equals(key)) {
-                entry.isDeleted = true;
+        if (oldTable != null) {
+            int oldIndex = findInOld(key);
+            if (oldIndex >= 0) {
+                V oldValue = oldTable[oldIndex].value;
+                oldTable[oldIndex] = (Entry<K, V>) MOVED;
                 size--;
-                return entry.value;
+                return oldValue;
             }
+        }
+
+        if (probing == Probing.ROBIN_HOOD) {
+            return removeRobinHood(key);
+        }
+
+        int index = findLinear(key);
+        if (index < 0)
+            return null;
+
+        Entry<K, V> entry = table[index];
+        entry.isDeleted = true;
+        size--;
+        tombstones++;
+        if ((double) tombstones / table.length > TOMBSTONE_RATIO) {
+            recordedRehash(table.length);
+        }
+        return entry.value;
+    }
+
+    /**
+     * Finds the slot of a key in Robin Hood mode. The search stops early at the
+     * first entry whose displacement is smaller than the current probe distance,
+     * since the key would have displaced that entry had it been inserted.
+     *
+     * @param key the key
+     * @return the slot index, or -1 if not found
+     */
+    private int findRobinHood(K key) {
+        return findRobinHood(key, hashing.hash(key));
+    }
+
+    /**
+     * Finds the slot of a key in Robin Hood mode.
+     *
+     * @param key the key
+     * @param h   the non-negative hash code of the key
+     * @return the slot index, or -1 if not found
+     */
+    private int findRobinHood(K key, int h) {
+        int index = hashing.indexFor(h, table.length);
+
+        for (int dist = 0; dist < table.length; dist++) {
+            Entry<K, V> entry = table[index];
+            if (entry == null || displacement(entry, index) < dist)
+                return -1;
+            if (entry.hash == h && entry.key.equals(key))
+                return index;
             index = (index + 1) % table.length;
-        } while (index != startIndex);
+        }
+        return -1;
+    }
 
-        return null;
+    /**
+     * Removes a mapping in Robin Hood mode, shifting the following entries of
+     * the cluster back by one slot so no tombstone is left behind.
+     *
+     * @param key the key to remove
+     * @return the value removed, or null if not found
+     */
+    private V removeRobinHood(K key) {
+        int index = findRobinHood(key);
+        if (index < 0)
+            return null;
+        return removeRobinHoodAt(index);
+    }
+
+    /**
+     * Removes the mapping in a slot in Robin Hood mode, shifting the rest of
+     * the cluster back.
+     *
+     * @param index the slot index
+     * @return the value removed
+     */
+    private V removeRobinHoodAt(int index) {
+        V oldValue = table[index].value;
+        int next = (index + 1) % table.length;
+        while (table[next] != null && displacement(table[next], next) > 0) {
+            table[index] = table[next];
+            index = next;
+            next = (next + 1) % table.length;
+        }
+        table[index] = null;
+        size--;
+        return oldValue;
+    }
+
+    /**
+     * Inserts or updates every mapping of a batch in groups, as described on
+     * {@link simpleMap#putAll}. An incremental resize in progress is finished
+     * first. Tombstones count towards the load, and when the batch does not
+     * fit the table grows at least twofold.
+     *
+     * @param keys   the keys
+     * @param values the values, one per key
+     */
+    @Override
+    public void putAll(List<? extends K> keys, List<? extends V> values) {
+        if (keys.size() != values.size()) {
+            throw new IllegalArgumentException(keys.size() + " keys but " + values.size() + " values");
+        }
+        int n = keys.size();
+        finishMigration();
+        if ((double) (size + tombstones + n) / table.length > loadFactor) {
+            int needed = (int) Math.ceil((size + n + 1) / loadFactor) + 1;
+            // Grow at least twofold so a stream of small batches still resizes rarely
+            recordedRehash(needed <= table.length ? table.length
+                    : hashing.tableSize(Math.max(table.length * 2, needed)));
+        }
+        int[] h = hashing.hashAll(keys);
+        int[] homeHashes = new int[BATCH_GROUP];
+        for (int base = 0; base < n; base += BATCH_GROUP) {
+            int end = Math.min(base + BATCH_GROUP, n);
+            touchGroup(h, base, end, homeHashes);
+            for (int i = base; i < end; i++) {
+                putHashed(keys.get(i), h[i], values.get(i));
+            }
+        }
+    }
+
+    /**
+     * Looks up every key of a batch in groups. A key whose home slot holds its
+     * hash is checked there without probing. An incremental resize in progress
+     * is finished first.
+     *
+     * @param keys the keys
+     * @return the value of each key in the same order, null where not found
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<V> getAll(List<? extends K> keys) {
+        finishMigration();
+        int n = keys.size();
+        int[] h = hashing.hashAll(keys);
+        Object[] result = new Object[n];
+        int[] homeHashes = new int[BATCH_GROUP];
+        for (int base = 0; base < n; base += BATCH_GROUP) {
+            int end = Math.min(base + BATCH_GROUP, n);
+            touchGroup(h, base, end, homeHashes);
+            for (int i = base; i < end; i++) {
+                K key = keys.get(i);
+                int index = hashing.indexFor(h[i], table.length);
+                Entry<K, V> home = table[index];
+                if (homeHashes[i - base] != h[i] || home.isDeleted || !home.key.equals(key)) {
+                    index = find(key, h[i]);
+                }
+                result[i] = index < 0 ? null : table[index].value;
+                if (stats != null) {
+                    stats.recordLookup(lookupLength(h[i], index), index >= 0);
+                }
+            }
+        }
+        return (List<V>) Arrays.asList(result);
+    }
+
+    /**
+     * Removes every key of a batch in groups like {@link #getAll}. Tombstones
+     * are only cleared once, after the whole batch.
+     *
+     * @param keys the keys
+     * @return the value removed for each key in the same order, null where not
+     *         present
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<V> removeAll(List<? extends K> keys) {
+        finishMigration();
+        int n = keys.size();
+        int[] h = hashing.hashAll(keys);
+        Object[] result = new Object[n];
+        int[] homeHashes = new int[BATCH_GROUP];
+        for (int base = 0; base < n; base += BATCH_GROUP) {
+            int end = Math.min(base + BATCH_GROUP, n);
+            touchGroup(h, base, end, homeHashes);
+            for (int i = base; i < end; i++) {
+                int index = find(keys.get(i), h[i]);
+                if (index < 0) {
+                    continue;
+                }
+                if (probing == Probing.ROBIN_HOOD) {
+                    result[i] = removeRobinHoodAt(index);
+                } else {
+                    Entry<K, V> entry = table[index];
+                    entry.isDeleted = true;
+                    size--;
+                    tombstones++;
+                    result[i] = entry.value;
+                }
+            }
+        }
+        if ((double) tombstones / table.length > TOMBSTONE_RATIO) {
+            recordedRehash(table.length);
+        }
+        return (List<V>) Arrays.asList(result);
+    }
+
+    private int find(K key, int h) {
+        return probing == Probing.ROBIN_HOOD ? findRobinHood(key, h) : findLinear(key, h);
+    }
+
+    /**
+     * Reads the entry in the home slot of every key in a group, and the hash
+     * cached in it.
+     *
+     * @param h          the hashes of the batch
+     * @param base       the first key of the group
+     * @param end        one past the last key of the group
+     * @param homeHashes receives the hash of each home entry, or -1 if the
+     *                   slot is empty
+     */
+    private void touchGroup(int[] h, int base, int end, int[] homeHashes) {
+        for (int i = base; i < end; i++) {
+            Entry<K, V> home = table[hashing.indexFor(h[i], table.length)];
+            homeHashes[i - base] = home == null ? -1 : home.hash;
+        }
+    }
+
+    /**
+     * Returns a snapshot of the table's internals. The layout histogram counts
+     * the displacement of every entry in the current table; the lookup and
+     * resize figures are only kept when the table was constructed with stats
+     * recording on.
+     *
+     * @return the stats
+     */
+    public tableStats stats() {
+        long[] layout = new long[tableStats.HISTOGRAM_LENGTH];
+        for (int i = 0; i < table.length; i++) {
+            Entry<K, V> entry = table[i];
+            if (entry != null && !entry.isDeleted) {
+                tableStats.count(layout, displacement(entry, i));
+            }
+        }
+        return new tableStats(statsName(), table.length, size, tombstones, layout, stats);
+    }
+
+    /** @return the name of the table in stats and JFR events */
+    private String statsName() {
+        return "linearProbingHashTable@" + Integer.toHexString(System.identityHashCode(this));
+    }
+
+    /**
+     * Returns the largest displacement of any entry from its home slot.
+     *
+     * @return the maximum probe length of a successful lookup, minus one
+     */
+    public int maxDisplacement() {
+        int max = 0;
+        for (int i = 0; i < table.length; i++) {
+            Entry<K, V> entry = table[i];
+            if (entry != null && !entry.isDeleted) {
+                max = Math.max(max, displacement(entry, i));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Returns the mean displacement of the entries from their home slots.
+     *
+     * @return the mean displacement, or 0 if the table is empty
+     */
+    public double meanDisplacement() {
+        long total = 0;
+        int count = 0;
+        for (int i = 0; i < table.length; i++) {
+            Entry<K, V> entry = table[i];
+            if (entry != null && !entry.isDeleted) {
+                total += displacement(entry, i);
+                count++;
+            }
+        }
+        return count == 0 ? 0.0 : (double) total / count;
+    }
+
+    /**
+     * Returns the displacement below which the given fraction of entries fall,
+     * for example {@code 0.99} for the p99 probe length.
+     *
+     * @param percentile a fraction between 0 and 1
+     * @return the displacement at that percentile
+     */
+    public int displacementPercentile(double percentile) {
+        int[] counts = new int[maxDisplacement() + 1];
+        int count = 0;
+        for (int i = 0; i < table.length; i++) {
+            Entry<K, V> entry = table[i];
+            if (entry != null && !entry.isDeleted) {
+                counts[displacement(entry, i)]++;
+                count++;
+            }
+        }
+        long target = (long) Math.ceil(percentile * count);
+        long seen = 0;
+        for (int d = 0; d < counts.length; d++) {
+            seen += counts[d];
+            if (seen >= target) {
+                return d;
+            }
+        }
+        return counts.length - 1;
     }
 
     /**
@@ -263,6 +991,24 @@ public class linearProbingHashTable<K, V> implements simpleMap<K, V> {
         return size;
     }
 
+    /**
+     * Returns the number of slots holding a deleted entry.
+     *
+     * @return number of tombstones
+     */
+    public int tombstoneCount() {
+        return tombstones;
+    }
+
+    /**
+     * Returns the fraction of slots holding a deleted entry.
+     *
+     * @return tombstones divided by capacity
+     */
+    public double tombstoneLoad() {
+        return (double) tombstones / table.length;
+    }
+
     /**
      * Checks if the map is empty.
      *
@@ -272,4 +1018,172 @@ public class linearProbingHashTable<K, V> implements simpleMap<K, V> {
     public boolean isEmpty() {
         return size == 0;
     }
-}
\ No newline at end of file
+
+    /**
+     * Writes the table layout to a file: the capacity, load factor, probing
+     * strategy and hasher fingerprint, then the slot, cached hash, key and
+     * value of every live entry in slot order, then the slot of every
+     * tombstone so restored probe sequences stay intact. An incremental resize
+     * in progress is finished first. Key hash codes must be the same in the
+     * JVM that restores the snapshot, as they are for strings and boxed
+     * numbers, and a seeded hasher must be restored with the same secret for
+     * the saved slots to be reused.
+     *
+     * @param path       the file to write, replaced if it exists
+     * @param keyCodec   how to write keys
+     * @param valueCodec how to write non-null values
+     */
+    public void snapshot(Path path, codec<K> keyCodec, codec<V> valueCodec) throws IOException {
+        finishMigration();
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(path), SNAPSHOT_BUFFER))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(table.length);
+            out.writeInt(size);
+            out.writeInt(tombstones);
+            out.writeDouble(loadFactor);
+            out.writeByte(probing.ordinal());
+            out.writeLong(hashing.fingerprint());
+            for (int i = 0; i < table.length; i++) {
+                Entry<K, V> entry = table[i];
+                if (entry != null && !entry.isDeleted) {
+                    out.writeInt(i);
+                    out.writeInt(entry.hash);
+                    keyCodec.write(out, entry.key);
+                    out.writeBoolean(entry.value != null);
+                    if (entry.value != null) {
+                        valueCodec.write(out, entry.value);
+                    }
+                }
+            }
+            for (int i = 0; i < table.length; i++) {
+                if (table[i] != null && table[i].isDeleted) {
+                    out.writeInt(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Restores a table from a snapshot at its saved capacity, hashing keys
+     * with {@link hasher#MODULO}. If the snapshot was taken with the same
+     * hasher every entry is put straight back into its saved slot, so no key
+     * is hashed, probed or compared.
+     *
+     * @param path       the snapshot file
+     * @param keyCodec   how to read keys
+     * @param valueCodec how to read non-null values
+     * @return the restored table
+     */
+    public static <K, V> linearProbingHashTable<K, V> restore(Path path, codec<K> keyCodec, codec<V> valueCodec)
+            throws IOException {
+        return restore(path, keyCodec, valueCodec, -1, hasher.MODULO);
+    }
+
+    /**
+     * Restores a table from a snapshot with the given capacity, hashing keys
+     * with {@link hasher#MODULO}.
+     *
+     * @param path       the snapshot file
+     * @param keyCodec   how to read keys
+     * @param valueCodec how to read non-null values
+     * @param capacity   the number of slots, or -1 for the saved capacity
+     * @return the restored table
+     * @see #restore(Path, codec, codec, int, hasher)
+     */
+    public static <K, V> linearProbingHashTable<K, V> restore(Path path, codec<K> keyCodec, codec<V> valueCodec,
+            int capacity) throws IOException {
+        return restore(path, keyCodec, valueCodec, capacity, hasher.MODULO);
+    }
+
+    /**
+     * Restores a table from a snapshot with the given capacity and hasher. If
+     * the snapshot was taken with the same hasher and the capacity matches the
+     * saved one, every entry is put straight back into its saved slot.
+     * Otherwise the table is sized once for every entry, raised to stay under
+     * the load factor if needed, and the entries are placed without any key
+     * comparison: by their saved hashes if the hasher matches, or by hashing
+     * each key again if not.
+     * <p>
+     * The load factor and probing strategy are restored from the snapshot.
+     * The resize mode and stats recording are not saved, so the restored
+     * table always uses {@link resizeMode#FULL} and does not record stats.
+     *
+     * @param path       the snapshot file
+     * @param keyCodec   how to read keys
+     * @param valueCodec how to read non-null values
+     * @param capacity   the number of slots, or -1 for the saved capacity
+     * @param hashing    how the restored table hashes keys
+     * @return the restored table
+     * @throws IOException if the file cannot be read, is not a snapshot or is
+     *                     corrupt
+     */
+    public static <K, V> linearProbingHashTable<K, V> restore(Path path, codec<K> keyCodec, codec<V> valueCodec,
+            int capacity, hasher hashing) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path), SNAPSHOT_BUFFER))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Not a linear probing snapshot: " + path);
+            }
+            int savedCapacity = in.readInt();
+            int count = in.readInt();
+            int tombstones = in.readInt();
+            double loadFactor = in.readDouble();
+            int probingOrdinal = in.readByte();
+            if (savedCapacity <= 0 || count < 0 || tombstones < 0 || (long) count + tombstones >= savedCapacity
+                    || !(loadFactor > 0 && loadFactor < 1)
+                    || probingOrdinal < 0 || probingOrdinal >= Probing.values().length) {
+                throw new IOException("Corrupt snapshot header: " + path);
+            }
+            Probing probing = Probing.values()[probingOrdinal];
+            boolean sameHasher = in.readLong() == hashing.fingerprint();
+
+            boolean sameLayout = sameHasher && (capacity < 0 || capacity == savedCapacity);
+            int newCapacity = sameLayout ? savedCapacity
+                    : Math.max(capacity < 0 ? savedCapacity : capacity,
+                            (int) Math.ceil((count + 1) / loadFactor) + 1);
+            linearProbingHashTable<K, V> restored = new linearProbingHashTable<>(newCapacity, loadFactor, probing,
+                    resizeMode.FULL, false, hashing);
+            for (int i = 0; i < count; i++) {
+                int slot = in.readInt();
+                int hash = in.readInt();
+                if (hash < 0) {
+                    throw new IOException("Corrupt snapshot hash " + hash + ": " + path);
+                }
+                K key = keyCodec.read(in);
+                V value = in.readBoolean() ? valueCodec.read(in) : null;
+                Entry<K, V> entry = new Entry<>(key, value, sameHasher ? hash : hashing.hash(key));
+                if (sameLayout) {
+                    restored.table[checkFreeSlot(restored.table, slot, path)] = entry;
+                } else {
+                    restored.reinsert(entry);
+                }
+            }
+            restored.size = count;
+            if (sameLayout) {
+                // Any deleted entry works as a tombstone; reuse the shared marker
+                @SuppressWarnings("unchecked")
+                Entry<K, V> tombstone = (Entry<K, V>) MOVED;
+                for (int i = 0; i < tombstones; i++) {
+                    restored.table[checkFreeSlot(restored.table, in.readInt(), path)] = tombstone;
+                }
+                restored.tombstones = tombstones;
+            }
+            return restored;
+        }
+    }
+
+    /**
+     * Checks that a slot read from a snapshot is in range and not yet filled.
+     *
+     * @return the slot
+     * @throws IOException if the slot is out of range or already holds an entry
+     */
+    private static int checkFreeSlot(Entry<?, ?>[] table, int slot, Path path) throws IOException {
+        if (slot < 0 || slot >= table.length || table[slot] != null) {
+            throw new IOException("Corrupt snapshot slot " + slot + ": " + path);
+        }
+        return slot;
+    }
+}
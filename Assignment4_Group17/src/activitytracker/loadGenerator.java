@@ -0,0 +1,265 @@
+package activitytracker;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A load generator for the maps under concurrent, mixed traffic. Many
+ * platform or virtual threads look up and update student sessions drawn from
+ * a Zipf distribution, and every so often a thread requests a Merkle proof
+ * for a session's log entry and verifies it, as an audit client would. The
+ * latency of every operation is recorded in a per-thread
+ * {@link latencyHistogram}, and each run reports throughput and the p50, p99
+ * and p999 latency of each kind of operation.
+ * <p>
+ * The load is closed-loop: each thread issues its next operation as soon as
+ * the last one returns, so the latencies are service times and do not include
+ * time a request would have spent queued behind a slow one.
+ * <p>
+ * Options are given as {@code --name=value[,value...]}; every combination of
+ * the listed values is run:
+ * <ul>
+ * <li>{@code map}: ConcurrentChaining, or LinearProbing, SeparateChaining or
+ * FlatLinearProbing behind one global lock</li>
+ * <li>{@code threads}: the number of client threads</li>
+ * <li>{@code threadType}: platform or virtual</li>
+ * <li>{@code get}: the fraction of map operations that are lookups; the rest
+ * are updates</li>
+ * <li>{@code proofEvery}: map operations per thread between Merkle proof
+ * requests, or 0 for none</li>
+ * <li>{@code warmup} and {@code time}: ms of load before and during
+ * measurement</li>
+ * </ul>
+ */
+public class loadGenerator {
+
+    private static final int KEY_COUNT = 1_000_000;
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+    static {
+        DEFAULTS.put("map", "ConcurrentChaining,LinearProbing,SeparateChaining,FlatLinearProbing");
+        DEFAULTS.put("threads", "1,4,16,256");
+        DEFAULTS.put("threadType", "platform,virtual");
+        DEFAULTS.put("get", "0.95");
+        DEFAULTS.put("proofEvery", "100");
+        DEFAULTS.put("warmup", "1000");
+        DEFAULTS.put("time", "3000");
+    }
+
+    /** Consumes results so the JIT cannot drop the measured calls. */
+    private static volatile long sink;
+
+    private static simpleMap<String, Integer> createMap(String type) {
+        switch (type) {
+            case "ConcurrentChaining":
+                return new concurrentChainingHashTable<>(KEY_COUNT);
+            case "LinearProbing":
+                return new globalLockMap<>(new linearProbingHashTable<>(KEY_COUNT));
+            case "SeparateChaining":
+                return new globalLockMap<>(new separateChainingHashTable<>(KEY_COUNT));
+            case "FlatLinearProbing":
+                return new globalLockMap<>(new flatLinearProbingHashTable<>(KEY_COUNT));
+            default:
+                throw new IllegalArgumentException("Unknown map type: " + type);
+        }
+    }
+
+    /**
+     * The sessions, the log entry of each and the Merkle tree over the log,
+     * shared read-only by every run.
+     */
+    private static class Workload {
+        final String[] keys = new String[KEY_COUNT];
+        final List<String> log = new ArrayList<>(KEY_COUNT);
+        final merkleTree tree;
+        final byte[] rootDigest;
+        final zipfGenerator zipf = new zipfGenerator(KEY_COUNT);
+
+        Workload() {
+            for (int i = 0; i < KEY_COUNT; i++) {
+                keys[i] = UUID.randomUUID().toString();
+                log.add("log_event_" + keys[i] + "_login");
+            }
+            tree = new merkleTree(log);
+            rootDigest = tree.getRootDigest();
+        }
+    }
+
+    /**
+     * The latencies one client thread recorded, by kind of operation.
+     */
+    private static class Recorded {
+        final latencyHistogram gets = new latencyHistogram();
+        final latencyHistogram puts = new latencyHistogram();
+        final latencyHistogram proofs = new latencyHistogram();
+
+        void add(Recorded other) {
+            gets.add(other.gets);
+            puts.add(other.puts);
+            proofs.add(other.proofs);
+        }
+    }
+
+    /**
+     * One client thread: issues operations until told to stop.
+     */
+    private static class Client implements Runnable {
+        private final Workload workload;
+        private final simpleMap<String, Integer> map;
+        private final double getRatio;
+        private final int proofEvery;
+        private final SplittableRandom random;
+        private final CountDownLatch start;
+        private volatile boolean stop;
+        volatile Recorded recorded = new Recorded();
+
+        Client(Workload workload, simpleMap<String, Integer> map, double getRatio, int proofEvery, long seed,
+                CountDownLatch start) {
+            this.workload = workload;
+            this.map = map;
+            this.getRatio = getRatio;
+            this.proofEvery = proofEvery;
+            this.random = new SplittableRandom(seed);
+            this.start = start;
+        }
+
+        @Override
+        public void run() {
+            try {
+                start.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long local = 0;
+            long ops = 0;
+            while (!stop) {
+                Recorded r = recorded;
+                int rank = workload.zipf.next(random);
+                String key = workload.keys[rank];
+                long begin = System.nanoTime();
+                if (random.nextDouble() < getRatio) {
+                    Integer v = map.get(key);
+                    r.gets.record(System.nanoTime() - begin);
+                    local += v == null ? 0 : v;
+                } else {
+                    map.put(key, rank);
+                    r.puts.record(System.nanoTime() - begin);
+                }
+
+                if (proofEvery > 0 && ++ops % proofEvery == 0) {
+                    begin = System.nanoTime();
+                    List<merkleTree.ProofNode> proof = workload.tree.getProof(rank);
+                    boolean valid = merkleTree.verifyProof(workload.log.get(rank), proof, workload.rootDigest);
+                    r.proofs.record(System.nanoTime() - begin);
+                    if (!valid) {
+                        throw new IllegalStateException("Proof of leaf " + rank + " did not verify");
+                    }
+                }
+            }
+            sink += local;
+        }
+    }
+
+    /**
+     * Runs one parameter combination: warms up, then swaps in fresh
+     * histograms and measures.
+     */
+    private static void run(Workload workload, Map<String, String> params) throws InterruptedException {
+        simpleMap<String, Integer> map = createMap(params.get("map"));
+        for (int i = 0; i < KEY_COUNT; i++) {
+            map.put(workload.keys[i], i);
+        }
+
+        int threads = Integer.parseInt(params.get("threads"));
+        boolean virtual = params.get("threadType").equals("virtual");
+        double getRatio = Double.parseDouble(params.get("get"));
+        int proofEvery = Integer.parseInt(params.get("proofEvery"));
+
+        CountDownLatch start = new CountDownLatch(1);
+        Client[] clients = new Client[threads];
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            clients[t] = new Client(workload, map, getRatio, proofEvery, 42 + t, start);
+            workers[t] = (virtual ? Thread.ofVirtual() : Thread.ofPlatform()).unstarted(clients[t]);
+            workers[t].start();
+        }
+
+        start.countDown();
+        Thread.sleep(Long.parseLong(params.get("warmup")));
+        for (Client client : clients) {
+            client.recorded = new Recorded();
+        }
+        long begin = System.nanoTime();
+        Thread.sleep(Long.parseLong(params.get("time")));
+        for (Client client : clients) {
+            client.stop = true;
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - begin;
+
+        Recorded total = new Recorded();
+        for (Client client : clients) {
+            total.add(client.recorded);
+        }
+        latencyHistogram all = new latencyHistogram();
+        all.add(total.gets);
+        all.add(total.puts);
+        all.add(total.proofs);
+
+        report(params, "get", total.gets, elapsed);
+        report(params, "put", total.puts, elapsed);
+        if (proofEvery > 0) {
+            report(params, "proof", total.proofs, elapsed);
+        }
+        report(params, "all", all, elapsed);
+    }
+
+    private static void report(Map<String, String> params, String op, latencyHistogram histogram, long elapsed) {
+        System.out.printf(Locale.US, "%s,%s,%s,%s,%d,%.0f,%.2f,%.2f,%.2f,%.2f,%.2f\n",
+                params.get("map"), params.get("threadType"), params.get("threads"), op,
+                histogram.getTotalCount(),
+                histogram.getTotalCount() / (elapsed / 1e9),
+                histogram.getMean() / 1e3,
+                histogram.getValueAtPercentile(0.50) / 1e3,
+                histogram.getValueAtPercentile(0.99) / 1e3,
+                histogram.getValueAtPercentile(0.999) / 1e3,
+                histogram.getMax() / 1e3);
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                int eq = arg.indexOf('=');
+                String name = arg.substring(2, eq);
+                if (!DEFAULTS.containsKey(name)) {
+                    throw new IllegalArgumentException("Unknown option: " + name);
+                }
+                options.put(name, arg.substring(eq + 1));
+            } else {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+        }
+        return options;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = parseArgs(args);
+        Workload workload = new Workload();
+
+        System.out.println("MapType,ThreadType,Threads,Operation,Count,Throughput(ops/s),Mean(us),p50(us),"
+                + "p99(us),p999(us),Max(us)");
+        for (Map<String, String> params : mapHarness.combinations(options)) {
+            run(workload, params);
+        }
+    }
+}
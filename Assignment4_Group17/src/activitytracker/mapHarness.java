@@ -0,0 +1,359 @@
+package activitytracker;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * A microbenchmark harness for the simpleMap implementations, run in the same
+ * way as a JMH benchmark: every parameter combination is measured in separate
+ * forked JVMs, each fork runs timed warmup iterations before the measured
+ * ones, and results are reported as throughput, average time and allocation
+ * per operation.
+ * <p>
+ * Options are given as {@code --name=value[,value...]}; every combination of
+ * the listed values is run:
+ * <ul>
+ * <li>{@code map}: LinearProbing, RobinHood, FlatLinearProbing,
+ * SeparateChaining, ConcurrentChaining, OffHeap</li>
+ * <li>{@code capacity}: initial table capacity</li>
+ * <li>{@code load}: fraction of the capacity filled before measuring</li>
+ * <li>{@code dist}: UUID, SEQUENTIAL or ZIPF key distribution</li>
+ * <li>{@code hit}: fraction of lookups that find their key</li>
+ * <li>{@code bench}: get, put (update of a present key) or putRemove</li>
+ * <li>{@code forks}, {@code warmup}, {@code iterations}, {@code time} (ms per
+ * iteration)</li>
+ * </ul>
+ * With {@code --forks=0} everything runs in the current JVM.
+ */
+public class mapHarness {
+
+    /**
+     * How the benchmark keys are generated and accessed.
+     */
+    public enum Distribution {
+        /** Random UUID strings, accessed uniformly. */
+        UUID,
+        /** Sequential student IDs, accessed uniformly. */
+        SEQUENTIAL,
+        /** Random UUID strings, accessed with a Zipf skew. */
+        ZIPF
+    }
+
+    private static final int LOOKUP_TABLE_SIZE = 1 << 16;
+    private static final int BATCH = 1_024;
+    private static final String RESULT_PREFIX = "RESULT,";
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+    static {
+        DEFAULTS.put("map", "LinearProbing,RobinHood,FlatLinearProbing,SeparateChaining,ConcurrentChaining,OffHeap");
+        DEFAULTS.put("capacity", "1048576");
+        DEFAULTS.put("load", "0.5,0.7");
+        DEFAULTS.put("dist", "UUID,SEQUENTIAL,ZIPF");
+        DEFAULTS.put("hit", "1.0,0.5");
+        DEFAULTS.put("bench", "get,put,putRemove");
+        DEFAULTS.put("forks", "2");
+        DEFAULTS.put("warmup", "3");
+        DEFAULTS.put("iterations", "5");
+        DEFAULTS.put("time", "500");
+    }
+
+    /** Consumes benchmark results so the JIT cannot drop the measured calls. */
+    private static volatile long sink;
+
+    private static simpleMap<String, Integer> createMap(String type, int capacity) {
+        switch (type) {
+            case "LinearProbing":
+                return new linearProbingHashTable<>(capacity);
+            case "RobinHood":
+                return new linearProbingHashTable<>(capacity, 0.9, linearProbingHashTable.Probing.ROBIN_HOOD);
+            case "FlatLinearProbing":
+                return new flatLinearProbingHashTable<>(capacity);
+            case "SeparateChaining":
+                return new separateChainingHashTable<>(capacity);
+            case "ConcurrentChaining":
+                return new concurrentChainingHashTable<>(capacity);
+            case "OffHeap":
+                return new offHeapStringMap(capacity); // Freed by State.close
+            default:
+                throw new IllegalArgumentException("Unknown map type: " + type);
+        }
+    }
+
+    private static List<String> generateKeys(Distribution dist, int from, int count) {
+        List<String> keys = new ArrayList<>(count);
+        for (int i = from; i < from + count; i++) {
+            if (dist == Distribution.SEQUENTIAL) {
+                keys.add(String.format("student%08d", i));
+            } else {
+                keys.add(UUID.randomUUID().toString());
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * The state of one benchmark run: a prefilled map and a precomputed table
+     * of lookup keys, so no random numbers are drawn inside the measured loop.
+     */
+    private static class State implements AutoCloseable {
+        final simpleMap<String, Integer> map;
+        final String[] lookups = new String[LOOKUP_TABLE_SIZE];
+        final String[] present = new String[LOOKUP_TABLE_SIZE];
+        final String[] absent = new String[LOOKUP_TABLE_SIZE];
+
+        State(String type, int capacity, double load, Distribution dist, double hitRatio) {
+            int n = Math.max(1, (int) (capacity * load));
+            List<String> keys = generateKeys(dist, 0, n);
+            List<String> missing = generateKeys(dist, n, n);
+
+            map = createMap(type, capacity);
+            for (int i = 0; i < n; i++) {
+                map.put(keys.get(i), i);
+            }
+
+            Random random = new Random(42);
+            zipfGenerator zipf = dist == Distribution.ZIPF ? new zipfGenerator(n) : null;
+            for (int i = 0; i < LOOKUP_TABLE_SIZE; i++) {
+                int index = zipf != null ? zipf.next(random) : random.nextInt(n);
+                present[i] = keys.get(index);
+                absent[i] = missing.get(index);
+                lookups[i] = random.nextDouble() < hitRatio ? present[i] : absent[i];
+            }
+        }
+
+        /**
+         * Frees the native memory of an off-heap map, which would otherwise
+         * outlive the run when every combination shares one JVM.
+         */
+        @Override
+        public void close() {
+            if (map instanceof offHeapStringMap offHeap) {
+                offHeap.close();
+            }
+        }
+    }
+
+    /**
+     * Runs one benchmark operation {@code ops} times starting at {@code offset}.
+     */
+    private static void run(String bench, State state, int offset, int ops) {
+        simpleMap<String, Integer> map = state.map;
+        int mask = LOOKUP_TABLE_SIZE - 1;
+        long local = 0;
+        switch (bench) {
+            case "get":
+                for (int i = offset; i < offset + ops; i++) {
+                    Integer v = map.get(state.lookups[i & mask]);
+                    local += v == null ? 0 : v;
+                }
+                break;
+            case "put":
+                for (int i = offset; i < offset + ops; i++) {
+                    Integer v = map.put(state.present[i & mask], i);
+                    local += v == null ? 0 : v;
+                }
+                break;
+            case "putRemove":
+                for (int i = offset; i < offset + ops; i++) {
+                    String k = state.absent[i & mask];
+                    map.put(k, i);
+                    Integer v = map.remove(k);
+                    local += v == null ? 0 : v;
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown benchmark: " + bench);
+        }
+        sink += local;
+    }
+
+    /**
+     * Returns the bytes allocated so far by the current thread.
+     */
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * Runs the warmup and measurement iterations for a single parameter
+     * combination in this JVM.
+     *
+     * @return one {@code {throughput ops/ms, average ns/op, bytes/op}} row per
+     *         measurement iteration
+     */
+    private static List<double[]> runIterations(Map<String, String> params) {
+        String bench = params.get("bench");
+        try (State state = new State(params.get("map"), Integer.parseInt(params.get("capacity")),
+                Double.parseDouble(params.get("load")), Distribution.valueOf(params.get("dist")),
+                Double.parseDouble(params.get("hit")))) {
+            int warmup = Integer.parseInt(params.get("warmup"));
+            int iterations = Integer.parseInt(params.get("iterations"));
+            long iterationNanos = Long.parseLong(params.get("time")) * 1_000_000L;
+
+            List<double[]> results = new ArrayList<>();
+            int offset = 0;
+            for (int it = 0; it < warmup + iterations; it++) {
+                long ops = 0;
+                long allocStart = allocatedBytes();
+                long start = System.nanoTime();
+                long elapsed;
+                do {
+                    run(bench, state, offset, BATCH);
+                    offset = (offset + BATCH) & (LOOKUP_TABLE_SIZE - 1);
+                    ops += BATCH;
+                    elapsed = System.nanoTime() - start;
+                } while (elapsed < iterationNanos);
+                long allocated = allocatedBytes() - allocStart;
+
+                if (it >= warmup) {
+                    results.add(new double[] { ops / (elapsed / 1e6), (double) elapsed / ops,
+                            (double) allocated / ops });
+                }
+            }
+            return results;
+        }
+    }
+
+    /**
+     * Runs a single parameter combination in a new JVM and collects the
+     * measurement rows it prints.
+     */
+    private static List<double[]> runFork(Map<String, String> params) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        String modulePath = System.getProperty("jdk.module.path");
+        if (modulePath != null) {
+            command.add("-p");
+            command.add(modulePath);
+            command.add("-m");
+            command.add(mapHarness.class.getModule().getName() + "/" + mapHarness.class.getName());
+        } else {
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(mapHarness.class.getName());
+        }
+        command.add("--child");
+        for (Map.Entry<String, String> p : params.entrySet()) {
+            command.add("--" + p.getKey() + "=" + p.getValue());
+        }
+
+        Process process = new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+
+        List<double[]> results = new ArrayList<>();
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = out.readLine()) != null) {
+                if (line.startsWith(RESULT_PREFIX)) {
+                    String[] parts = line.substring(RESULT_PREFIX.length()).split(",");
+                    results.add(new double[] { Double.parseDouble(parts[0]), Double.parseDouble(parts[1]),
+                            Double.parseDouble(parts[2]) });
+                }
+            }
+        }
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("Benchmark fork failed for " + params);
+        }
+        return results;
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            if (arg.equals("--child")) {
+                options.put("child", "true");
+            } else if (arg.startsWith("--") && arg.contains("=")) {
+                int eq = arg.indexOf('=');
+                String name = arg.substring(2, eq);
+                if (!DEFAULTS.containsKey(name)) {
+                    throw new IllegalArgumentException("Unknown option: " + name);
+                }
+                options.put(name, arg.substring(eq + 1));
+            } else {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+        }
+        return options;
+    }
+
+    /**
+     * Expands the comma-separated options into every parameter combination.
+     */
+    static List<Map<String, String>> combinations(Map<String, String> options) {
+        List<Map<String, String>> result = new ArrayList<>();
+        result.add(new LinkedHashMap<>());
+        for (Map.Entry<String, String> option : options.entrySet()) {
+            List<Map<String, String>> next = new ArrayList<>();
+            for (Map<String, String> partial : result) {
+                for (String value : option.getValue().split(",")) {
+                    Map<String, String> combination = new LinkedHashMap<>(partial);
+                    combination.put(option.getKey(), value.trim());
+                    next.add(combination);
+                }
+            }
+            result = next;
+        }
+        return result;
+    }
+
+    /**
+     * Prints one row per mode with the mean and standard deviation over all
+     * measurement iterations of all forks.
+     */
+    private static void report(Map<String, String> params, List<double[]> rows) {
+        String[] modes = { "thrpt", "avgt", "gc.alloc.rate.norm" };
+        String[] units = { "ops/ms", "ns/op", "B/op" };
+        for (int m = 0; m < modes.length; m++) {
+            double mean = 0;
+            for (double[] row : rows) {
+                mean += row[m];
+            }
+            mean /= rows.size();
+            double variance = 0;
+            for (double[] row : rows) {
+                variance += (row[m] - mean) * (row[m] - mean);
+            }
+            double stdDev = rows.size() > 1 ? Math.sqrt(variance / (rows.size() - 1)) : 0;
+
+            System.out.printf(Locale.US, "%s,%s,%s,%s,%s,%s,%s,%d,%.3f,%.3f,%s\n",
+                    params.get("bench"), params.get("map"), params.get("capacity"), params.get("load"),
+                    params.get("dist"), params.get("hit"), modes[m], rows.size(), mean, stdDev, units[m]);
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> options = parseArgs(args);
+
+        if (options.remove("child") != null) {
+            for (double[] row : runIterations(options)) {
+                System.out.printf(Locale.US, "%s%f,%f,%f\n", RESULT_PREFIX, row[0], row[1], row[2]);
+            }
+            return;
+        }
+
+        System.out.println("Benchmark,MapType,Capacity,Load,Distribution,HitRatio,Mode,Samples,Score,StdDev,Units");
+
+        int forks = Integer.parseInt(options.get("forks"));
+        for (Map<String, String> params : combinations(options)) {
+            List<double[]> rows = new ArrayList<>();
+            if (forks == 0) {
+                rows.addAll(runIterations(params));
+            }
+            for (int f = 0; f < forks; f++) {
+                rows.addAll(runFork(params));
+            }
+            report(params, rows);
+        }
+    }
+}
@@ -1,15 +1,22 @@
 package activitytracker;
 
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 public class merkleBenchmark {
 
     private static final int[] SAMPLE_SIZES = {
             5_000, 10_000, 25_000, 50_000, 100_000, 250_000, 500_000, 1_000_000, 2_500_000, 5_000_000, 10_000_000
     };
+    private static final int PARALLEL_SAMPLE_SIZE = 1_000_000;
+    private static final int UPDATE_SAMPLE_SIZE = 1_000_000;
+    private static final int UPDATE_BATCH = 1_000;
+    private static final int MULTI_PROOF_SAMPLE_SIZE = 1_000_000;
+    private static final int[] MULTI_PROOF_LEAVES = { 1, 10, 100, 1_000, 10_000 };
 
     private static List<String> generateLogs(int count) {
         List<String> data = new ArrayList<>(count);
@@ -24,16 +31,78 @@ public class merkleBenchmark {
         return data.get(rand.nextInt(data.size()));
     }
 
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * The previous build, kept as a baseline: a 30-bit polynomial hash returned
+     * as a decimal string, with every parent hashed from the concatenation of
+     * its children's strings.
+     */
+    private static class stringHashTree {
+        private static class Node {
+            String hash;
+            Node left, right, parent;
+
+            Node(String hash) {
+                this.hash = hash;
+            }
+
+            Node(String hash, Node left, Node right) {
+                this.hash = hash;
+                this.left = left;
+                this.right = right;
+            }
+        }
+
+        final Node root;
+
+        stringHashTree(List<String> dataBlocks) {
+            List<Node> nodes = new ArrayList<>();
+            for (String data : dataBlocks) {
+                nodes.add(new Node(hash(data)));
+            }
+            while (nodes.size() > 1) {
+                List<Node> parents = new ArrayList<>();
+                for (int i = 0; i < nodes.size(); i += 2) {
+                    Node left = nodes.get(i);
+                    Node right = (i + 1 < nodes.size()) ? nodes.get(i + 1) : left;
+                    Node parent = new Node(hash(left.hash + right.hash), left, right);
+                    left.parent = parent;
+                    right.parent = parent;
+                    parents.add(parent);
+                }
+                nodes = parents;
+            }
+            root = nodes.get(0);
+        }
+
+        private static String hash(String input) {
+            long hash = 0;
+            long p = 31;
+            long m = 1_000_000_009;
+            for (int i = 0; i < input.length(); i++) {
+                hash = (hash * p + input.charAt(i)) % m;
+            }
+            return Long.toString(hash);
+        }
+    }
+
     public static void main(String[] args) {
-        System.out.println("SampleSize,BuildTime(ms),ProofGenTime(ms),ProofVerifyTime(ms)");
+        System.out.println("SampleSize,BuildTime(ms),BuildAlloc(MB),ProofGenTime(ms),ProofVerifyTime(ms),"
+                + "StringHashBuildTime(ms),StringHashBuildAlloc(MB)");
 
         for (int size : SAMPLE_SIZES) {
             List<String> logs = generateLogs(size);
 
             // Build Merkle Tree
+            long alloc = allocatedBytes();
             long start = System.nanoTime();
             merkleTree tree = new merkleTree(logs);
             long buildTime = System.nanoTime() - start;
+            long buildAlloc = allocatedBytes() - alloc;
 
             // Select target log for proof
             String target = getRandomData(logs);
@@ -51,13 +120,177 @@ public class merkleBenchmark {
             if (!isValid) {
                 throw new RuntimeException("Merkle Proof verification failed for size: " + size);
             }
+            tree = null;
+
+            // Baseline build with the string-based hash
+            alloc = allocatedBytes();
+            start = System.nanoTime();
+            stringHashTree baseline = new stringHashTree(logs);
+            long baselineTime = System.nanoTime() - start;
+            long baselineAlloc = allocatedBytes() - alloc;
+            if (baseline.root == null) {
+                throw new IllegalStateException();
+            }
 
             // Print benchmark result
-            System.out.printf(Locale.US, "%d,%.3f,%.3f,%.3f\n",
+            System.out.printf(Locale.US, "%d,%.3f,%.1f,%.3f,%.3f,%.3f,%.1f\n",
                     size,
                     buildTime / 1e6,
+                    buildAlloc / 1e6,
                     proofGenTime / 1e6,
-                    verifyTime / 1e6);
+                    verifyTime / 1e6,
+                    baselineTime / 1e6,
+                    baselineAlloc / 1e6);
+        }
+
+        parallelBuild();
+        leafUpdates();
+        multiProofs();
+    }
+
+    /**
+     * Compares one multi-proof for a session's consecutive events against a
+     * separate proof per event.
+     */
+    private static void multiProofs() {
+        List<String> logs = generateLogs(MULTI_PROOF_SAMPLE_SIZE);
+        merkleTree tree = new merkleTree(logs);
+        byte[] root = tree.getRootDigest();
+        Random rand = new Random();
+
+        System.out.println();
+        System.out.println("SampleSize,Leaves,MultiProofHashes,SingleProofHashes,MultiProofGenTime(ms),"
+                + "MultiProofVerifyTime(ms),SingleProofsGenTime(ms),SingleProofsVerifyTime(ms)");
+
+        for (int k : MULTI_PROOF_LEAVES) {
+            int first = rand.nextInt(logs.size() - k);
+            int[] indices = new int[k];
+            for (int i = 0; i < k; i++) {
+                indices[i] = first + i;
+            }
+            List<String> session = logs.subList(first, first + k);
+
+            long start = System.nanoTime();
+            merkleTree.MultiProof multiProof = tree.getMultiProof(indices);
+            long multiGenTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            boolean isValid = merkleTree.verifyMultiProof(session, multiProof, root, logs.size());
+            long multiVerifyTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            List<List<merkleTree.ProofNode>> proofs = new ArrayList<>(k);
+            for (int index : indices) {
+                proofs.add(tree.getProof(index));
+            }
+            long singleGenTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int singleHashes = 0;
+            for (int i = 0; i < k; i++) {
+                isValid &= merkleTree.verifyProof(session.get(i), proofs.get(i), root);
+                singleHashes += proofs.get(i).size();
+            }
+            long singleVerifyTime = System.nanoTime() - start;
+
+            if (!isValid) {
+                throw new RuntimeException("Proof verification failed for " + k + " leaves");
+            }
+
+            System.out.printf(Locale.US, "%d,%d,%d,%d,%.3f,%.3f,%.3f,%.3f\n",
+                    MULTI_PROOF_SAMPLE_SIZE, k,
+                    multiProof.hashes.size(), singleHashes,
+                    multiGenTime / 1e6,
+                    multiVerifyTime / 1e6,
+                    singleGenTime / 1e6,
+                    singleVerifyTime / 1e6);
+        }
+    }
+
+    /**
+     * Compares correcting leaves one at a time and as a batch against
+     * rebuilding the tree from the corrected logs.
+     */
+    private static void leafUpdates() {
+        List<String> logs = generateLogs(UPDATE_SAMPLE_SIZE);
+        merkleTree tree = new merkleTree(logs);
+        Random rand = new Random();
+
+        int[] indices = new int[UPDATE_BATCH];
+        List<String> corrections = new ArrayList<>(UPDATE_BATCH);
+        for (int i = 0; i < UPDATE_BATCH; i++) {
+            indices[i] = rand.nextInt(logs.size());
+            corrections.add("redacted_event_" + i);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < UPDATE_BATCH; i++) {
+            tree.update(indices[i], corrections.get(i));
+        }
+        long singleTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        tree.update(indices, corrections);
+        long batchTime = System.nanoTime() - start;
+
+        for (int i = 0; i < UPDATE_BATCH; i++) {
+            logs.set(indices[i], corrections.get(i));
+        }
+        start = System.nanoTime();
+        merkleTree rebuilt = new merkleTree(logs);
+        long rebuildTime = System.nanoTime() - start;
+
+        if (!rebuilt.getRootHash().equals(tree.getRootHash())) {
+            throw new RuntimeException("Updated tree differs from the rebuilt tree");
+        }
+
+        System.out.println();
+        System.out.println("SampleSize,Updates,SingleUpdateTime(ms),BatchUpdateTime(ms),RebuildTime(ms)");
+        System.out.printf(Locale.US, "%d,%d,%.3f,%.3f,%.3f\n",
+                UPDATE_SAMPLE_SIZE, UPDATE_BATCH,
+                singleTime / 1e6,
+                batchTime / 1e6,
+                rebuildTime / 1e6);
+    }
+
+    /**
+     * Compares the parallel build on 1 to N worker threads against the
+     * sequential build of the same logs.
+     */
+    private static void parallelBuild() {
+        List<String> logs = generateLogs(PARALLEL_SAMPLE_SIZE);
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        // Warm up both builds before timing
+        new merkleTree(logs);
+        new merkleTree(logs, ForkJoinPool.commonPool());
+
+        long start = System.nanoTime();
+        String expectedRoot = new merkleTree(logs).getRootHash();
+        long sequentialTime = System.nanoTime() - start;
+
+        System.out.println();
+        System.out.println("SampleSize,Threads,ParallelBuildTime(ms),SequentialBuildTime(ms),Speedup");
+
+        for (int threads = 1; threads <= cores; threads = threads < cores ? Math.min(threads * 2, cores) : threads + 1) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                start = System.nanoTime();
+                merkleTree tree = new merkleTree(logs, pool);
+                long parallelTime = System.nanoTime() - start;
+
+                if (!tree.getRootHash().equals(expectedRoot)) {
+                    throw new RuntimeException("Parallel build produced a different root with " + threads + " threads");
+                }
+
+                System.out.printf(Locale.US, "%d,%d,%.3f,%.3f,%.2f\n",
+                        PARALLEL_SAMPLE_SIZE, threads,
+                        parallelTime / 1e6,
+                        sequentialTime / 1e6,
+                        (double) sequentialTime / parallelTime);
+            } finally {
+                pool.shutdown();
+            }
         }
     }
 }
@@ -0,0 +1,297 @@
+package activitytracker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * An append-only Merkle log for events that arrive one at a time.
+ * <p>
+ * The log follows the history tree of RFC 6962: the root over {@code n}
+ * leaves hashes the perfect subtree over the first {@code k} leaves, where
+ * {@code k} is the largest power of two below {@code n}, with the root over
+ * the rest. Every perfect subtree is hashed exactly once, when its last leaf
+ * arrives, and kept, so appending a leaf costs O(log n) hashes and the root is
+ * a fold over at most log n subtree roots (the "peaks").
+ * <p>
+ * Leaves and parents are hashed as in {@link merkleTree}, so an inclusion proof
+ * from {@link #getProof(int, int)} verifies with
+ * {@link merkleTree#verifyProof(String, List, byte[])}, and the two roots agree
+ * for every leaf count.
+ */
+public class merkleLog {
+
+    private static final int DIGEST_LENGTH = merkleTree.DIGEST_LENGTH;
+    private static final int INITIAL_CAPACITY = 16;
+    // The leaf level is one array, so its byte offsets must fit in an int
+    private static final int MAX_LEAVES = Integer.MAX_VALUE / DIGEST_LENGTH;
+    private static final HexFormat HEX = HexFormat.of();
+
+    // levels.get(h) holds the digests of every complete subtree of 2^h leaves,
+    // left to right, so node i at height h covers leaves [i * 2^h, (i + 1) * 2^h).
+    private final List<Level> levels = new ArrayList<>();
+    private int size;
+    private byte[] root; // Cached until the next append
+
+    /**
+     * Constructs an empty log.
+     */
+    public merkleLog() {
+        levels.add(new Level(INITIAL_CAPACITY));
+    }
+
+    /**
+     * Appends an event to the log, hashing the leaf and every subtree it
+     * completes.
+     *
+     * @return the index of the new leaf
+     */
+    public int append(String data) {
+        if (size == MAX_LEAVES) {
+            throw new IllegalStateException("Log is full");
+        }
+        Level leaves = levels.get(0);
+        merkleTree.leafDigest(data, leaves.reserve(), leaves.offset(leaves.count));
+        leaves.count++;
+
+        // A level whose count became even has just completed a pair; hash it
+        // into the level above and carry on upwards.
+        for (int h = 0; (levels.get(h).count & 1) == 0; h++) {
+            Level level = levels.get(h);
+            if (h + 1 == levels.size()) {
+                levels.add(new Level(INITIAL_CAPACITY));
+            }
+            Level parents = levels.get(h + 1);
+            merkleTree.nodeDigest(level.data, level.offset(level.count - 2),
+                    level.data, level.offset(level.count - 1),
+                    parents.reserve(), parents.offset(parents.count));
+            parents.count++;
+        }
+        root = null;
+        return size++;
+    }
+
+    /**
+     * Returns the number of leaves in the log.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the root hash of the log as a hex string.
+     */
+    public String getRootHash() {
+        return HEX.formatHex(currentRoot());
+    }
+
+    /**
+     * Returns a copy of the root digest over every leaf appended so far.
+     */
+    public byte[] getRootDigest() {
+        return currentRoot().clone();
+    }
+
+    /**
+     * Returns the root digest the log had when it held {@code treeSize}
+     * leaves.
+     */
+    public byte[] getRootDigest(int treeSize) {
+        checkTreeSize(treeSize);
+        return subtreeHash(0, treeSize);
+    }
+
+    private byte[] currentRoot() {
+        if (size == 0) {
+            throw new IllegalStateException("Log is empty");
+        }
+        if (root == null) {
+            root = subtreeHash(0, size);
+        }
+        return root;
+    }
+
+    /**
+     * Generates an inclusion proof for a leaf against the current root.
+     */
+    public List<merkleTree.ProofNode> getProof(int leafIndex) {
+        return getProof(leafIndex, size);
+    }
+
+    /**
+     * Generates an inclusion proof for a leaf against the root the log had
+     * when it held {@code treeSize} leaves. The proof lists siblings from the
+     * leaf upwards.
+     */
+    public List<merkleTree.ProofNode> getProof(int leafIndex, int treeSize) {
+        checkTreeSize(treeSize);
+        if (leafIndex < 0 || leafIndex >= treeSize)
+            throw new IndexOutOfBoundsException("Leaf index " + leafIndex + " out of range");
+
+        // Descend from the root, taking the sibling subtree at each split.
+        List<merkleTree.ProofNode> proof = new ArrayList<>();
+        int start = 0, end = treeSize;
+        while (end - start > 1) {
+            int k = Integer.highestOneBit(end - start - 1);
+            if (leafIndex < start + k) {
+                proof.add(new merkleTree.ProofNode(subtreeHash(start + k, end), false));
+                end = start + k;
+            } else {
+                proof.add(new merkleTree.ProofNode(subtreeHash(start, start + k), true));
+                start += k;
+            }
+        }
+        Collections.reverse(proof);
+        return proof;
+    }
+
+    /**
+     * Generates a proof that the log at {@code oldSize} leaves is a prefix of
+     * the log at {@code newSize} leaves, as in RFC 6962 section 2.1.2.
+     */
+    public List<byte[]> getConsistencyProof(int oldSize, int newSize) {
+        checkTreeSize(newSize);
+        if (oldSize <= 0 || oldSize > newSize)
+            throw new IllegalArgumentException("Old size must be between 1 and " + newSize);
+
+        List<byte[]> proof = new ArrayList<>();
+        int m = oldSize, start = 0, end = newSize;
+        boolean wholeOldTree = true;
+        while (true) {
+            int length = end - start;
+            if (m == length) {
+                // The old tree's root is known to the verifier; any other
+                // complete subtree it shares with the new tree is not.
+                if (!wholeOldTree) {
+                    proof.add(subtreeHash(start, end));
+                }
+                break;
+            }
+            int k = Integer.highestOneBit(length - 1);
+            if (m <= k) {
+                proof.add(subtreeHash(start + k, end));
+                end = start + k;
+            } else {
+                proof.add(subtreeHash(start, start + k));
+                m -= k;
+                start += k;
+                wholeOldTree = false;
+            }
+        }
+        Collections.reverse(proof);
+        return proof;
+    }
+
+    /**
+     * Verifies a consistency proof between two roots of a log, following
+     * RFC 9162 section 2.1.4.2.
+     */
+    public static boolean verifyConsistency(int oldSize, int newSize, byte[] oldRoot, byte[] newRoot,
+            List<byte[]> proof) {
+        if (oldSize <= 0 || oldSize > newSize) {
+            return false;
+        }
+        if (oldSize == newSize) {
+            return proof.isEmpty() && Arrays.equals(oldRoot, newRoot);
+        }
+        if (proof.isEmpty()) {
+            return false;
+        }
+
+        int next = 0;
+        byte[] oldHash = new byte[DIGEST_LENGTH];
+        byte[] newHash = new byte[DIGEST_LENGTH];
+        if (Integer.bitCount(oldSize) == 1) {
+            System.arraycopy(oldRoot, 0, oldHash, 0, DIGEST_LENGTH);
+        } else {
+            System.arraycopy(proof.get(next++), 0, oldHash, 0, DIGEST_LENGTH);
+        }
+        System.arraycopy(oldHash, 0, newHash, 0, DIGEST_LENGTH);
+
+        int fn = oldSize - 1, sn = newSize - 1;
+        while ((fn & 1) == 1) {
+            fn >>= 1;
+            sn >>= 1;
+        }
+        for (; next < proof.size(); next++) {
+            byte[] c = proof.get(next);
+            if (sn == 0) {
+                return false;
+            }
+            if ((fn & 1) == 1 || fn == sn) {
+                merkleTree.nodeDigest(c, 0, oldHash, 0, oldHash, 0);
+                merkleTree.nodeDigest(c, 0, newHash, 0, newHash, 0);
+                while ((fn & 1) == 0 && fn != 0) {
+                    fn >>= 1;
+                    sn >>= 1;
+                }
+            } else {
+                merkleTree.nodeDigest(newHash, 0, c, 0, newHash, 0);
+            }
+            fn >>= 1;
+            sn >>= 1;
+        }
+        return sn == 0 && Arrays.equals(oldHash, oldRoot) && Arrays.equals(newHash, newRoot);
+    }
+
+    private void checkTreeSize(int treeSize) {
+        if (treeSize <= 0 || treeSize > size)
+            throw new IllegalArgumentException("Tree size must be between 1 and " + size);
+    }
+
+    /**
+     * Computes the root over leaves {@code [start, end)}. Callers only pass
+     * ranges whose start is aligned to the largest power of two not above the
+     * range length, so the range splits into stored perfect subtrees of
+     * decreasing size, which are folded together from the right.
+     */
+    private byte[] subtreeHash(int start, int end) {
+        int length = end - start;
+        int blocks = Integer.bitCount(length);
+        int[] heights = new int[blocks];
+        int[] offsets = new int[blocks];
+        int at = start;
+        for (int b = 0; b < blocks; b++) {
+            int h = 31 - Integer.numberOfLeadingZeros(length);
+            heights[b] = h;
+            offsets[b] = at;
+            at += 1 << h;
+            length -= 1 << h;
+        }
+
+        byte[] out = new byte[DIGEST_LENGTH];
+        Level last = levels.get(heights[blocks - 1]);
+        System.arraycopy(last.data, last.offset(offsets[blocks - 1] >> heights[blocks - 1]), out, 0, DIGEST_LENGTH);
+        for (int b = blocks - 2; b >= 0; b--) {
+            Level level = levels.get(heights[b]);
+            merkleTree.nodeDigest(level.data, level.offset(offsets[b] >> heights[b]), out, 0, out, 0);
+        }
+        return out;
+    }
+
+    /** The digests of one height of the tree, packed end to end. */
+    private static final class Level {
+        byte[] data;
+        int count;
+
+        Level(int capacity) {
+            data = new byte[capacity * DIGEST_LENGTH];
+        }
+
+        int offset(int index) {
+            return index * DIGEST_LENGTH;
+        }
+
+        /**
+         * Makes room for one more digest and returns the backing array.
+         */
+        byte[] reserve() {
+            if (offset(count + 1) > data.length) {
+                data = Arrays.copyOf(data, (int) Math.min((long) data.length * 2, (long) MAX_LEAVES * DIGEST_LENGTH));
+            }
+            return data;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package activitytracker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * A benchmark for streaming events into a {@link merkleLog}, against the cost
+ * of rebuilding a {@link merkleTree} over the whole session, which is what
+ * every new event costs without the log.
+ */
+public class merkleLogBenchmark {
+
+    private static final int[] SAMPLE_SIZES = {
+            5_000, 10_000, 25_000, 50_000, 100_000, 250_000, 500_000, 1_000_000, 2_500_000
+    };
+
+    private static List<String> generateLogs(int count) {
+        List<String> data = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            data.add("log_event_student" + (i % 100) + "_timestamp_" + System.nanoTime());
+        }
+        return data;
+    }
+
+    public static void main(String[] args) {
+        System.out.println("SampleSize,AppendAllTime(ms),AppendTime(ns/event),RebuildTime(ms),"
+                + "ProofGenTime(ms),ConsistencyProofTime(ms),ConsistencyVerifyTime(ms)");
+        Random random = new Random();
+
+        for (int size : SAMPLE_SIZES) {
+            List<String> logs = generateLogs(size);
+
+            // Stream every event into the log, reading the root after each one
+            merkleLog log = new merkleLog();
+            long start = System.nanoTime();
+            for (String event : logs) {
+                log.append(event);
+                log.getRootDigest();
+            }
+            long appendTime = System.nanoTime() - start;
+
+            // The cost of a single rebuild at the final size
+            start = System.nanoTime();
+            merkleTree tree = new merkleTree(logs);
+            long rebuildTime = System.nanoTime() - start;
+            if (tree.getLeafCount() != size) {
+                throw new IllegalStateException();
+            }
+
+            // Inclusion proof for a random earlier event
+            int target = random.nextInt(size);
+            start = System.nanoTime();
+            List<merkleTree.ProofNode> proof = log.getProof(target);
+            long proofGenTime = System.nanoTime() - start;
+            if (!merkleTree.verifyProof(logs.get(target), proof, log.getRootDigest())) {
+                throw new RuntimeException("Inclusion proof verification failed for size: " + size);
+            }
+
+            // Consistency proof from a random earlier size to now
+            int oldSize = 1 + random.nextInt(size);
+            byte[] oldRoot = log.getRootDigest(oldSize);
+            start = System.nanoTime();
+            List<byte[]> consistency = log.getConsistencyProof(oldSize, size);
+            long consistencyTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            boolean consistent = merkleLog.verifyConsistency(oldSize, size, oldRoot, log.getRootDigest(), consistency);
+            long consistencyVerifyTime = System.nanoTime() - start;
+            if (!consistent) {
+                throw new RuntimeException("Consistency proof verification failed for size: " + size);
+            }
+
+            System.out.printf(Locale.US, "%d,%.3f,%.1f,%.3f,%.3f,%.3f,%.3f\n",
+                    size,
+                    appendTime / 1e6,
+                    (double) appendTime / size,
+                    rebuildTime / 1e6,
+                    proofGenTime / 1e6,
+                    consistencyTime / 1e6,
+                    consistencyVerifyTime / 1e6);
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package activitytracker;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * A {@link merkleTree} persisted to a file and read back through memory
+ * mapping, so reopening a tree is a map call rather than a rebuild.
+ * <p>
+ * The file holds a header, every level of digests from the leaves up to the
+ * root, and the leaf indices sorted by leaf digest:
+ *
+ * <pre>
+ * int magic, int version, int leafCount, int levelCount
+ * level 0: ceil(n / 1) digests    (leaves)
+ * level 1: ceil(n / 2) digests
+ * ...
+ * level H: 1 digest               (root)
+ * int leafIndex[n]                (sorted by the digest of each leaf)
+ * </pre>
+ *
+ * The last node of an odd level is carried up unchanged, as in
+ * {@link merkleTree}, so its digest is stored again on the level above.
+ * Version 1 files paired it with itself and are not read.
+ *
+ * Each level and the index are mapped separately, so no mapping exceeds the
+ * 2 GB limit of a {@link MappedByteBuffer} until a single level does. Proofs
+ * and root reads use absolute gets only, so one store can be read from many
+ * threads. A store is read-only; it is written once by {@link #save}.
+ */
+public class merkleStore implements AutoCloseable {
+
+    private static final int MAGIC = 0x4D524B4C; // "MRKL"
+    private static final int VERSION = 2;
+    private static final int HEADER_LENGTH = 16;
+    private static final int DIGEST_LENGTH = merkleTree.DIGEST_LENGTH;
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final FileChannel channel;
+    private final int leafCount;
+    private final MappedByteBuffer[] levels;
+    private final MappedByteBuffer index;
+
+    private merkleStore(FileChannel channel, int leafCount, MappedByteBuffer[] levels, MappedByteBuffer index) {
+        this.channel = channel;
+        this.leafCount = leafCount;
+        this.levels = levels;
+        this.index = index;
+    }
+
+    /**
+     * Writes a tree to a file, replacing any file already there.
+     */
+    public static void save(merkleTree tree, Path path) throws IOException {
+        int leafCount = tree.getLeafCount();
+        long[] levelOffsets = levelOffsets(leafCount);
+        int levelCount = levelOffsets.length - 1;
+        long indexOffset = levelOffsets[levelCount];
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH)
+                    .putInt(MAGIC).putInt(VERSION).putInt(leafCount).putInt(levelCount).flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+
+            MappedByteBuffer[] levels = mapLevels(channel, FileChannel.MapMode.READ_WRITE, levelOffsets);
+            int[] level = { 0 };
+            tree.forEachDigest(digest -> {
+                if (!levels[level[0]].hasRemaining()) {
+                    level[0]++;
+                }
+                levels[level[0]].put(digest, 0, DIGEST_LENGTH);
+            });
+
+            MappedByteBuffer index = channel.map(FileChannel.MapMode.READ_WRITE, indexOffset, 4L * leafCount);
+            for (int leaf : sortByDigest(levels[0], leafCount)) {
+                index.putInt(leaf);
+            }
+
+            for (MappedByteBuffer buffer : levels) {
+                buffer.force();
+            }
+            index.force();
+        }
+    }
+
+    /**
+     * Maps a tree written by {@link #save}. Nothing is hashed or copied onto
+     * the heap.
+     */
+    public static merkleStore open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException("Truncated merkle store header");
+                }
+            }
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a merkle store file: " + path);
+            }
+            int leafCount = header.getInt();
+            int levelCount = header.getInt();
+            if (leafCount <= 0) {
+                throw new IOException("Corrupt leaf count " + leafCount);
+            }
+            long[] levelOffsets = levelOffsets(leafCount);
+            long indexOffset = levelOffsets[levelOffsets.length - 1];
+            if (levelCount != levelOffsets.length - 1 || channel.size() != indexOffset + 4L * leafCount) {
+                throw new IOException("Corrupt merkle store: unexpected layout");
+            }
+            MappedByteBuffer[] levels = mapLevels(channel, FileChannel.MapMode.READ_ONLY, levelOffsets);
+            MappedByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, 4L * leafCount);
+            return new merkleStore(channel, leafCount, levels, index);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the byte offset of every level, followed by the offset of the
+     * leaf index after the last level.
+     */
+    private static long[] levelOffsets(int leafCount) {
+        List<Long> offsets = new ArrayList<>();
+        long offset = HEADER_LENGTH;
+        int size = leafCount;
+        while (true) {
+            offsets.add(offset);
+            offset += (long) size * DIGEST_LENGTH;
+            if (size == 1) {
+                break;
+            }
+            size = (size + 1) / 2;
+        }
+        offsets.add(offset);
+        return offsets.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static MappedByteBuffer[] mapLevels(FileChannel channel, FileChannel.MapMode mode, long[] offsets)
+            throws IOException {
+        MappedByteBuffer[] levels = new MappedByteBuffer[offsets.length - 1];
+        for (int h = 0; h < levels.length; h++) {
+            levels[h] = channel.map(mode, offsets[h], offsets[h + 1] - offsets[h]);
+        }
+        return levels;
+    }
+
+    /**
+     * Orders the leaf indices by leaf digest, leaves with equal digests by
+     * index. Most leaves are placed by a primitive sort on the first four
+     * digest bytes; only runs sharing those bytes compare whole digests.
+     */
+    private static int[] sortByDigest(ByteBuffer leaves, int leafCount) {
+        long[] keys = new long[leafCount];
+        for (int i = 0; i < leafCount; i++) {
+            int prefix = leaves.getInt(i * DIGEST_LENGTH) ^ Integer.MIN_VALUE; // Signed order = unsigned order
+            keys[i] = ((long) prefix << 32) | i;
+        }
+        Arrays.sort(keys);
+
+        int[] sorted = new int[leafCount];
+        for (int i = 0; i < leafCount; i++) {
+            sorted[i] = (int) keys[i];
+        }
+        byte[] a = new byte[DIGEST_LENGTH], b = new byte[DIGEST_LENGTH];
+        for (int start = 0; start < leafCount;) {
+            int end = start + 1;
+            while (end < leafCount && (keys[end] >>> 32) == (keys[start] >>> 32)) {
+                end++;
+            }
+            // Insertion sort keeps equal digests in index order
+            for (int i = start + 1; i < end; i++) {
+                int leaf = sorted[i];
+                leaves.get(leaf * DIGEST_LENGTH, a);
+                int j = i - 1;
+                while (j >= start) {
+                    leaves.get(sorted[j] * DIGEST_LENGTH, b);
+                    if (Arrays.compareUnsigned(b, a) <= 0) {
+                        break;
+                    }
+                    sorted[j + 1] = sorted[j];
+                    j--;
+                }
+                sorted[j + 1] = leaf;
+            }
+            start = end;
+        }
+        return sorted;
+    }
+
+    /**
+     * Returns the number of leaves in the stored tree.
+     */
+    public int getLeafCount() {
+        return leafCount;
+    }
+
+    /**
+     * Returns the root hash of the stored tree as a hex string.
+     */
+    public String getRootHash() {
+        return HEX.formatHex(getRootDigest());
+    }
+
+    /**
+     * Returns a copy of the root digest, read from the file.
+     */
+    public byte[] getRootDigest() {
+        byte[] root = new byte[DIGEST_LENGTH];
+        levels[levels.length - 1].get(0, root);
+        return root;
+    }
+
+    /**
+     * Generates a Merkle Proof for the first leaf holding the given data, by
+     * binary search over the stored digest order.
+     */
+    public List<merkleTree.ProofNode> getProof(String data) {
+        byte[] target = merkleTree.leafDigest(data);
+        byte[] probe = new byte[DIGEST_LENGTH];
+        int low = 0, high = leafCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            levels[0].get(index.getInt(4 * mid) * DIGEST_LENGTH, probe);
+            if (Arrays.compareUnsigned(probe, target) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        if (low == leafCount) {
+            throw new IllegalArgumentException("Data not found in tree");
+        }
+        int leaf = index.getInt(4 * low);
+        levels[0].get(leaf * DIGEST_LENGTH, probe);
+        if (!Arrays.equals(probe, target)) {
+            throw new IllegalArgumentException("Data not found in tree");
+        }
+        return getProof(leaf);
+    }
+
+    /**
+     * Generates a Merkle Proof for the leaf at a given position, reading each
+     * sibling from the file. The proof matches {@link merkleTree#getProof(int)}
+     * for the tree that was saved.
+     */
+    public List<merkleTree.ProofNode> getProof(int leafIndex) {
+        if (leafIndex < 0 || leafIndex >= leafCount)
+            throw new IndexOutOfBoundsException("Leaf index " + leafIndex + " out of range");
+        List<merkleTree.ProofNode> proof = new ArrayList<>(levels.length - 1);
+        int position = leafIndex;
+        int levelSize = leafCount;
+        for (int h = 0; h < levels.length - 1; h++) {
+            boolean isLeft = (position & 1) == 1;
+            if (isLeft || position + 1 < levelSize) {
+                int sibling = isLeft ? position - 1 : position + 1;
+                byte[] hash = new byte[DIGEST_LENGTH];
+                levels[h].get(sibling * DIGEST_LENGTH, hash);
+                proof.add(new merkleTree.ProofNode(hash, isLeft));
+            } // Else the last node of an odd level, carried up without a sibling
+            position >>= 1;
+            levelSize = (levelSize + 1) / 2;
+        }
+        return proof;
+    }
+
+    /**
+     * Closes the file. The mappings stay valid until they are garbage
+     * collected, as {@link MappedByteBuffer} cannot be unmapped explicitly.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,82 @@
+package activitytracker;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * A benchmark for reopening a persisted tree with {@link merkleStore} against
+ * rebuilding it from the raw logs, and for serving proofs from the mapped
+ * file.
+ */
+public class merkleStoreBenchmark {
+
+    private static final int[] SAMPLE_SIZES = { 10_000, 100_000, 1_000_000, 2_500_000 };
+
+    private static List<String> generateLogs(int count) {
+        List<String> data = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            data.add("log_event_student" + (i % 100) + "_timestamp_" + System.nanoTime());
+        }
+        return data;
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.out.println("SampleSize,FileSize(MB),SaveTime(ms),OpenTime(ms),RebuildTime(ms),"
+                + "ProofByIndexTime(ms),ProofByDataTime(ms)");
+        Random random = new Random();
+        Path file = Files.createTempFile("merkleStore", ".bin");
+        try {
+            for (int size : SAMPLE_SIZES) {
+                List<String> logs = generateLogs(size);
+
+                long start = System.nanoTime();
+                merkleTree tree = new merkleTree(logs);
+                long rebuildTime = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                merkleStore.save(tree, file);
+                long saveTime = System.nanoTime() - start;
+                String expectedRoot = tree.getRootHash();
+                tree = null;
+
+                start = System.nanoTime();
+                try (merkleStore store = merkleStore.open(file)) {
+                    long openTime = System.nanoTime() - start;
+                    if (!store.getRootHash().equals(expectedRoot)) {
+                        throw new RuntimeException("Stored root differs for size: " + size);
+                    }
+
+                    int target = random.nextInt(size);
+                    start = System.nanoTime();
+                    List<merkleTree.ProofNode> proof = store.getProof(target);
+                    long indexProofTime = System.nanoTime() - start;
+
+                    start = System.nanoTime();
+                    List<merkleTree.ProofNode> dataProof = store.getProof(logs.get(target));
+                    long dataProofTime = System.nanoTime() - start;
+
+                    if (!merkleTree.verifyProof(logs.get(target), proof, expectedRoot)
+                            || !merkleTree.verifyProof(logs.get(target), dataProof, expectedRoot)) {
+                        throw new RuntimeException("Stored proof verification failed for size: " + size);
+                    }
+
+                    System.out.printf(Locale.US, "%d,%.1f,%.3f,%.3f,%.3f,%.3f,%.3f\n",
+                            size,
+                            Files.size(file) / 1e6,
+                            saveTime / 1e6,
+                            openTime / 1e6,
+                            rebuildTime / 1e6,
+                            indexProofTime / 1e6,
+                            dataProofTime / 1e6);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
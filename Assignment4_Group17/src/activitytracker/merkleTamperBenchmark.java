@@ -2,7 +2,9 @@ package activitytracker;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
 
 /**
@@ -58,8 +60,78 @@ public class merkleTamperBenchmark {
         if (tamperingDetected(tampered5, originalRoot))
             passedTests++;
 
+        // 6. Replay the last 8 logs, which mirror the lone node of an odd level
+        List<String> tampered6 = new ArrayList<>(originalLogs);
+        tampered6.addAll(originalLogs.subList(LOG_COUNT - 8, LOG_COUNT));
+        totalTests++;
+        if (tamperingDetected(tampered6, originalRoot))
+            passedTests++;
+
+        // 7. Pad shorter logs with copies of their last entry
+        totalTests++;
+        if (sizesHaveDistinctRoots(originalLogs, 64))
+            passedTests++;
+
         System.out.printf("Tamper Detection Score: %d/%d tampering attempts were detected and blocked\n",
                 passedTests, totalTests);
+
+        System.out.println();
+        System.out.println("Tampering,ChangedEntries,LocateTime(ms),ListCompareTime(ms)");
+        locateTampering("Replace", originalLogs, tree, tampered1);
+        locateTampering("Remove", originalLogs, tree, tampered2);
+        locateTampering("Append", originalLogs, tree, tampered3);
+        locateTampering("SingleChar", originalLogs, tree, tampered4);
+        locateTampering("Swap", originalLogs, tree, tampered5);
+        locateTampering("Replay", originalLogs, tree, tampered6);
+    }
+
+    /**
+     * Checks that every log of up to {@code maxSize} entries, made of a prefix
+     * of the logs padded with copies of its last entry, has its own root.
+     */
+    private static boolean sizesHaveDistinctRoots(List<String> logs, int maxSize) {
+        HashSet<String> roots = new HashSet<>();
+        for (int prefix = 1; prefix <= maxSize; prefix++) {
+            List<String> padded = new ArrayList<>(logs.subList(0, prefix));
+            while (padded.size() <= maxSize) {
+                if (!roots.add(new merkleTree(padded).getRootHash())) {
+                    return false;
+                }
+                padded.add(logs.get(prefix - 1));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Times finding the changed entries by diffing the trees against
+     * comparing the two log lists entry by entry.
+     */
+    private static void locateTampering(String name, List<String> originalLogs, merkleTree tree,
+            List<String> tamperedLogs) {
+        merkleTree tamperedTree = new merkleTree(tamperedLogs);
+
+        long start = System.nanoTime();
+        int[] changed = tree.diff(tamperedTree);
+        long locateTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        int listChanged = 0;
+        for (int i = 0; i < Math.max(originalLogs.size(), tamperedLogs.size()); i++) {
+            if (i >= originalLogs.size() || i >= tamperedLogs.size()
+                    || !originalLogs.get(i).equals(tamperedLogs.get(i))) {
+                listChanged++;
+            }
+        }
+        long listTime = System.nanoTime() - start;
+
+        if (changed.length != listChanged) {
+            throw new RuntimeException("Tree diff found " + changed.length + " changes, expected " + listChanged);
+        }
+        System.out.printf(Locale.US, "%s,%d,%.3f,%.3f\n",
+                name, changed.length,
+                locateTime / 1e6,
+                listTime / 1e6);
     }
 
     private static boolean tamperingDetected(List<String> tamperedLogs, String originalRoot) {
@@ -1,16 +1,53 @@
 package activitytracker;
 
+import java.nio.ByteBuffer;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 /**
  * A merkle tree implementation with hash chaining for ensuring the integrity of
  * datasets like activity logs
+ * <p>
+ * Nodes hold 32-byte SHA-256 digests. Leaves are hashed as
+ * {@code SHA-256(0x00 || utf8(data))} and parents as
+ * {@code SHA-256(0x01 || left || right)}, so a leaf can never be passed off as
+ * an internal node. Both child digests are fed straight into a reused
+ * {@link MessageDigest}; no intermediate strings are built.
+ * <p>
+ * Nodes are paired level by level, and the last node of an odd level is
+ * carried up unchanged rather than paired with itself. This gives the tree of
+ * RFC 6962, so the root commits to the number of leaves: appending copies of
+ * the last entry changes it, and the root equals that of a {@link merkleLog}
+ * over the same entries.
  */
 public class merkleTree {
 
+    /** Length in bytes of every node digest. */
+    public static final int DIGEST_LENGTH = 32;
+
+    private static final byte LEAF_PREFIX = 0x00;
+    private static final byte NODE_PREFIX = 0x01;
+    private static final byte LINK_PREFIX = 0x02;
+    private static final HexFormat HEX = HexFormat.of();
+    private static final int PARALLEL_THRESHOLD = 2_048;
+
+    /** Per-thread digest and buffers, reused across every hash computed. */
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
     private Node root;
     private List<Node> leaves;
+    // Leaf digest -> {count, index, index, ...} of every leaf with that digest
+    private linearProbingHashTable<ByteBuffer, int[]> leafIndex;
     /**
      * Constructs a Merkle Tree from a list of data blocks.
      */
@@ -20,37 +57,272 @@ public class merkleTree {
         if (dataBlocks == null || dataBlocks.isEmpty()) {
             throw new IllegalArgumentException("Input data cannot be empty");
         }
-        this.leaves = new ArrayList<>();
+        this.leaves = new ArrayList<>(dataBlocks.size());
         for (String data : dataBlocks) {
-            Node leaf = new Node(hash(data));
+            Node leaf = new Node(leafDigest(data));
             leaves.add(leaf);
         }
         this.root = buildTree(leaves); // Initialize the list to store leaf nodes.
+        this.leafIndex = buildLeafIndex(leaves);
+    }
+
+    /**
+     * Constructs a Merkle Tree from a list of data blocks, hashing the leaves
+     * and each level of parents in parallel on the given pool. Nodes are paired
+     * exactly as in the sequential build, so the root is identical.
+     */
+    public merkleTree(List<String> dataBlocks, ForkJoinPool pool) {
+        if (dataBlocks == null || dataBlocks.isEmpty()) {
+            throw new IllegalArgumentException("Input data cannot be empty");
+        }
+        Node[] leafNodes = new Node[dataBlocks.size()];
+        pool.invoke(new RangeTask(0, leafNodes.length,
+                i -> leafNodes[i] = new Node(leafDigest(dataBlocks.get(i)))));
+        this.leaves = Arrays.asList(leafNodes);
 
+        // Reduce the levels on the pool while this thread builds the leaf index.
+        ForkJoinTask<Node> rootTask = pool.submit(() -> buildTreeParallel(leafNodes));
+        this.leafIndex = buildLeafIndex(leaves);
+        this.root = rootTask.join();
     }
 
     /**
-     * Returns the root hash of the Merkle Tree.
+     * Indexes every leaf by its digest so proofs can find their leaf without a
+     * scan. The digest arrays are wrapped, not copied.
+     */
+    private static linearProbingHashTable<ByteBuffer, int[]> buildLeafIndex(List<Node> leaves) {
+        linearProbingHashTable<ByteBuffer, int[]> index = new linearProbingHashTable<>(
+                (int) (leaves.size() / 0.75) + 2);
+        for (int i = 0; i < leaves.size(); i++) {
+            addToIndex(index, leaves.get(i).hash, i);
+        }
+        return index;
+    }
+
+    /**
+     * Records that the leaf at {@code leafIndex} has the given digest.
+     */
+    private static void addToIndex(linearProbingHashTable<ByteBuffer, int[]> index, byte[] digest,
+            int leafIndex) {
+        ByteBuffer key = ByteBuffer.wrap(digest);
+        int[] positions = index.get(key);
+        if (positions == null) {
+            index.put(key, new int[] { 1, leafIndex });
+            return;
+        }
+        int count = positions[0];
+        if (count + 1 == positions.length) {
+            positions = Arrays.copyOf(positions, positions.length * 2);
+            index.put(key, positions);
+        }
+        positions[count + 1] = leafIndex;
+        positions[0] = count + 1;
+    }
+
+    /**
+     * Forgets that the leaf at {@code leafIndex} has the given digest.
+     */
+    private static void removeFromIndex(linearProbingHashTable<ByteBuffer, int[]> index, byte[] digest,
+            int leafIndex) {
+        ByteBuffer key = ByteBuffer.wrap(digest);
+        int[] positions = index.get(key);
+        int count = positions[0];
+        if (count == 1) {
+            index.remove(key);
+            return;
+        }
+        int at = Arrays.binarySearch(positions, 1, count + 1, leafIndex);
+        System.arraycopy(positions, at + 1, positions, at, count - at);
+        positions[0] = count - 1;
+    }
+
+    /**
+     * Records that the leaf at {@code leafIndex} has the given digest, keeping
+     * the positions sorted when the leaf is not the last one added.
+     */
+    private static void insertIntoIndex(linearProbingHashTable<ByteBuffer, int[]> index, byte[] digest,
+            int leafIndex) {
+        addToIndex(index, digest, leafIndex);
+        int[] positions = index.get(ByteBuffer.wrap(digest));
+        for (int i = positions[0]; i > 1 && positions[i - 1] > positions[i]; i--) {
+            int swap = positions[i - 1];
+            positions[i - 1] = positions[i];
+            positions[i] = swap;
+        }
+    }
+
+    /**
+     * Replaces the data of one leaf and rehashes only the path from that leaf
+     * to the root, in O(log n).
+     */
+    public void update(int leafIndex, String newData) {
+        if (leafIndex < 0 || leafIndex >= leaves.size())
+            throw new IndexOutOfBoundsException("Leaf index " + leafIndex + " out of range");
+        Node current = leaves.get(leafIndex);
+        replaceLeaf(current, leafIndex, newData);
+        while (current.parent != null) {
+            current = current.parent;
+            rehash(current);
+        }
+    }
+
+    /**
+     * Replaces the data of several leaves, then rehashes each ancestor they
+     * share only once. If an index appears more than once, its last data
+     * wins.
+     */
+    public void update(int[] leafIndices, List<String> newData) {
+        if (leafIndices.length != newData.size())
+            throw new IllegalArgumentException("Expected " + leafIndices.length + " data blocks, got " + newData.size());
+        for (int leafIndex : leafIndices) {
+            if (leafIndex < 0 || leafIndex >= leaves.size())
+                throw new IndexOutOfBoundsException("Leaf index " + leafIndex + " out of range");
+        }
+        if (leafIndices.length == 0) {
+            return;
+        }
+        for (int i = 0; i < leafIndices.length; i++) {
+            replaceLeaf(leaves.get(leafIndices[i]), leafIndices[i], newData.get(i));
+        }
+
+        // Nodes are paired by position, so with the dirty leaves in order the
+        // children of any one parent are adjacent and the parent is hashed once.
+        int[] sorted = leafIndices.clone();
+        Arrays.sort(sorted);
+        Node[] dirty = new Node[sorted.length];
+        int count = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[count] = sorted[i];
+                dirty[count++] = leaves.get(sorted[i]);
+            }
+        }
+        int levelSize = leaves.size();
+        while (levelSize > 1) {
+            int parents = 0;
+            boolean carried = false;
+            for (int i = 0; i < count; i++) {
+                int position = sorted[i];
+                Node parent = dirty[i].parent;
+                if (position == levelSize - 1 && (position & 1) == 0) {
+                    parent = dirty[i]; // An odd level's last node, carried up
+                    carried = true;
+                }
+                if (parents == 0 || dirty[parents - 1] != parent) {
+                    sorted[parents] = position >> 1;
+                    dirty[parents++] = parent;
+                }
+            }
+            count = parents;
+            // A carried node is always last and keeps its digest
+            for (int i = 0; i < (carried ? count - 1 : count); i++) {
+                rehash(dirty[i]);
+            }
+            levelSize = (levelSize + 1) / 2;
+        }
+    }
+
+    /**
+     * Gives a leaf the digest of its new data and moves it in the leaf index.
+     * The digest gets a new array because the index and earlier proofs hold
+     * the old one.
+     */
+    private void replaceLeaf(Node leaf, int leafIndex, String newData) {
+        removeFromIndex(this.leafIndex, leaf.hash, leafIndex);
+        leaf.hash = leafDigest(newData);
+        insertIntoIndex(this.leafIndex, leaf.hash, leafIndex);
+    }
+
+    /**
+     * Recomputes a parent's digest from its children into a new array, so
+     * proofs already handed out keep the hashes they were built from.
+     */
+    private static void rehash(Node parent) {
+        parent.hash = nodeDigest(parent.left.hash, parent.right.hash);
+    }
+
+    /**
+     * Passes every node digest to {@code visitor} level by level, from the
+     * leaves up to the root and left to right within a level. Level
+     * {@code h} holds {@code ceil(n / 2^h)} nodes; a node carried up from an
+     * odd level is passed again on each level it reaches. The arrays are the
+     * tree's own and must not be changed.
+     */
+    void forEachDigest(Consumer<byte[]> visitor) {
+        Node[] level = leaves.toArray(new Node[0]);
+        while (true) {
+            for (Node node : level) {
+                visitor.accept(node.hash);
+            }
+            if (level.length == 1) {
+                return;
+            }
+            Node[] parents = new Node[(level.length + 1) / 2];
+            for (int i = 0; i < parents.length; i++) {
+                parents[i] = 2 * i + 1 < level.length ? level[2 * i].parent : level[2 * i];
+            }
+            level = parents;
+        }
+    }
+
+    /**
+     * Returns the number of leaves in the tree.
+     */
+    public int getLeafCount() {
+        return leaves.size();
+    }
+
+    /**
+     * Returns the indices of every leaf holding the given data, in ascending
+     * order, or an empty array if the data is not in the tree.
+     */
+    public int[] indicesOf(String data) {
+        int[] positions = leafIndex.get(ByteBuffer.wrap(leafDigest(data)));
+        if (positions == null) {
+            return new int[0];
+        }
+        return Arrays.copyOfRange(positions, 1, positions[0] + 1);
+    }
+
+    /**
+     * Returns the root hash of the Merkle Tree as a hex string.
      */
     public String getRootHash() {
-        return root.hash;
+        return HEX.formatHex(root.hash);
+    }
+
+    /**
+     * Returns a copy of the root digest of the Merkle Tree.
+     */
+    public byte[] getRootDigest() {
+        return root.hash.clone();
     }
+
      /**
      * Generates a Merkle Proof for a given data element.
      */
 
     public List<ProofNode> getProof(String data) {
-        String targetHash = hash(data); // Hash the target data to find its corresponding leaf.
-        Node current = null;
-        for (Node leaf : leaves) {
-            if (leaf.hash.equals(targetHash)) {
-                current = leaf;
-                break;
-            }
-        }
-        if (current == null)
+        // Hash the target data and look up the first leaf holding it.
+        int[] positions = leafIndex.get(ByteBuffer.wrap(leafDigest(data)));
+        if (positions == null)
             throw new IllegalArgumentException("Data not found in tree");
+        return proofFor(leaves.get(positions[1]));
+    }
 
+    /**
+     * Generates a Merkle Proof for the leaf at a given position.
+     */
+    public List<ProofNode> getProof(int leafIndex) {
+        if (leafIndex < 0 || leafIndex >= leaves.size())
+            throw new IndexOutOfBoundsException("Leaf index " + leafIndex + " out of range");
+        return proofFor(leaves.get(leafIndex));
+    }
+
+    /**
+     * Walks from a leaf to the root collecting the sibling at each level.
+     */
+    private List<ProofNode> proofFor(Node current) {
         List<ProofNode> proof = new ArrayList<>();// List to store the Merkle Proof.
         while (current.parent != null) {
             Node parent = current.parent;
@@ -63,18 +335,257 @@ public class merkleTree {
     }
 
     /**
-     * Verifies a Merkle Proof against a given data element and root hash.
+     * Generates one proof covering several leaves. Siblings that another
+     * covered leaf already determines are left out, so each shared hash
+     * appears once and a run of k neighbouring leaves needs about
+     * log(n / k) hashes beyond the leaves themselves.
+     */
+    public MultiProof getMultiProof(int[] leafIndices) {
+        if (leafIndices.length == 0)
+            throw new IllegalArgumentException("No leaf indices given");
+        int[] positions = leafIndices.clone();
+        Arrays.sort(positions);
+        if (positions[0] < 0 || positions[positions.length - 1] >= leaves.size())
+            throw new IndexOutOfBoundsException("Leaf index out of range");
+        int count = 0;
+        for (int i = 0; i < positions.length; i++) {
+            if (i == 0 || positions[i] != positions[i - 1]) {
+                positions[count++] = positions[i];
+            }
+        }
+        int[] covered = Arrays.copyOf(positions, count);
+
+        Node[] nodes = new Node[count];
+        for (int i = 0; i < count; i++) {
+            nodes[i] = leaves.get(positions[i]);
+        }
+        List<byte[]> hashes = new ArrayList<>();
+        int levelSize = leaves.size();
+        while (levelSize > 1) {
+            int parents = 0;
+            for (int i = 0; i < count; i++) {
+                int position = positions[i];
+                Node parent = nodes[i].parent;
+                if ((position & 1) == 1) {
+                    hashes.add(parent.left.hash); // Not covered, or it would have paired with this node
+                } else if (position + 1 < levelSize) {
+                    if (i + 1 < count && positions[i + 1] == position + 1) {
+                        i++; // Right sibling is covered too
+                    } else {
+                        hashes.add(parent.right.hash);
+                    }
+                } else {
+                    parent = nodes[i]; // An odd level's last node, carried up
+                }
+                positions[parents] = position >> 1;
+                nodes[parents++] = parent;
+            }
+            count = parents;
+            levelSize = (levelSize + 1) / 2;
+        }
+        return new MultiProof(leaves.size(), covered, hashes);
+    }
+
+    /**
+     * Verifies a multi-proof against a hex root hash. The data must be given
+     * in the order of {@link MultiProof#leafIndices}.
+     *
+     * @param leafCount the number of leaves of the tree the root belongs to,
+     *                  as the verifier knows it; a proof built for another
+     *                  size is rejected
+     */
+    public static boolean verifyMultiProof(List<String> data, MultiProof proof, String rootHash, int leafCount) {
+        if (rootHash.length() != 2 * DIGEST_LENGTH) {
+            return false;
+        }
+        byte[] rootDigest;
+        try {
+            rootDigest = HEX.parseHex(rootHash);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        return verifyMultiProof(data, proof, rootDigest, leafCount);
+    }
+
+    /**
+     * Verifies a multi-proof against a root digest, recomputing every shared
+     * internal node once, level by level. The data must be given in the order
+     * of {@link MultiProof#leafIndices}.
+     * <p>
+     * The leaf count comes from the verifier, not the proof: the same root
+     * can be reached by proofs laid out for a smaller tree, in which the
+     * covered positions mean different leaves.
+     *
+     * @param leafCount the number of leaves of the tree the root belongs to,
+     *                  as the verifier knows it; a proof built for another
+     *                  size is rejected
+     */
+    public static boolean verifyMultiProof(List<String> data, MultiProof proof, byte[] rootDigest, int leafCount) {
+        int count = proof.leafIndices.length;
+        if (data.size() != count || count == 0 || proof.leafCount != leafCount) {
+            return false;
+        }
+        int[] positions = proof.leafIndices.clone();
+        byte[] level = new byte[count * DIGEST_LENGTH];
+        Scratch scratch = SCRATCH.get();
+        for (int i = 0; i < count; i++) {
+            if (positions[i] < 0 || positions[i] >= proof.leafCount || (i > 0 && positions[i] <= positions[i - 1])) {
+                return false;
+            }
+            scratch.digestLeaf(data.get(i), level, i * DIGEST_LENGTH);
+        }
+
+        // Parents are written over their children, which are never read again.
+        int next = 0;
+        int levelSize = proof.leafCount;
+        while (levelSize > 1) {
+            int parents = 0;
+            for (int i = 0; i < count; i++) {
+                int position = positions[i];
+                int out = parents * DIGEST_LENGTH;
+                if ((position & 1) == 1) {
+                    if (next == proof.hashes.size()) {
+                        return false;
+                    }
+                    scratch.digestNode(proof.hashes.get(next++), 0, level, i * DIGEST_LENGTH, level, out);
+                } else if (position + 1 < levelSize) {
+                    if (i + 1 < count && positions[i + 1] == position + 1) {
+                        scratch.digestNode(level, i * DIGEST_LENGTH, level, (i + 1) * DIGEST_LENGTH, level, out);
+                        i++;
+                    } else {
+                        if (next == proof.hashes.size()) {
+                            return false;
+                        }
+                        scratch.digestNode(level, i * DIGEST_LENGTH, proof.hashes.get(next++), 0, level, out);
+                    }
+                } else {
+                    System.arraycopy(level, i * DIGEST_LENGTH, level, out, DIGEST_LENGTH); // Carried up
+                }
+                positions[parents++] = position >> 1;
+            }
+            count = parents;
+            levelSize = (levelSize + 1) / 2;
+        }
+        return next == proof.hashes.size()
+                && Arrays.equals(level, 0, DIGEST_LENGTH, rootDigest, 0, rootDigest.length);
+    }
+
+    /**
+     * Returns, in ascending order, the indices of every leaf that differs
+     * between this tree and another, including leaves only one of them has.
+     * <p>
+     * Both trees are walked together from the root, descending only into
+     * subtrees whose hashes differ, so k changed leaves cost O(k log n). Two
+     * nodes at the same position with equal hashes cover the same leaves,
+     * even where a shorter tree ends inside them, because every hash commits
+     * to the shape of the subtree below it.
+     */
+    public int[] diff(merkleTree other) {
+        int heightA = height(leaves.size());
+        int heightB = height(other.leaves.size());
+        int top = Math.max(heightA, heightB);
+        int[][] changed = { new int[16] };
+        int[] count = { 0 };
+        diff(heightA == top ? root : null, other, heightB == top ? other.root : null,
+                top, 0, changed, count);
+        return Arrays.copyOf(changed[0], count[0]);
+    }
+
+    private void diff(Node a, merkleTree other, Node b, int h, int i, int[][] changed, int[] count) {
+        int sizeA = leaves.size(), sizeB = other.leaves.size();
+        if (a != null && b != null && Arrays.equals(a.hash, b.hash)) {
+            return;
+        }
+        if (h == 0) {
+            if (count[0] == changed[0].length) {
+                changed[0] = Arrays.copyOf(changed[0], count[0] * 2);
+            }
+            changed[0][count[0]++] = i;
+            return;
+        }
+        Node leftA = child(a, root, height(sizeA), sizeA, h, 2 * i);
+        Node leftB = child(b, other.root, height(sizeB), sizeB, h, 2 * i);
+        diff(leftA, other, leftB, h - 1, 2 * i, changed, count);
+        Node rightA = child(a, root, height(sizeA), sizeA, h, 2 * i + 1);
+        Node rightB = child(b, other.root, height(sizeB), sizeB, h, 2 * i + 1);
+        if (rightA != null || rightB != null) {
+            diff(rightA, other, rightB, h - 1, 2 * i + 1, changed, count);
+        }
+    }
+
+    /**
+     * Returns the child at {@code position} on level {@code h - 1} below a
+     * node on level {@code h}, or null if the tree has no real node there.
+     * Above a shorter tree's root there is no parent, so its root is returned
+     * where the walk reaches it, and a node carried up from an odd level is
+     * its own child.
+     */
+    private static Node child(Node parent, Node root, int treeHeight, int size, int h, int position) {
+        if (parent == null) {
+            return (h - 1 == treeHeight && position == 0) ? root : null;
+        }
+        long levelSize = ((long) size + (1L << (h - 1)) - 1) >> (h - 1);
+        if (position >= levelSize) {
+            return null;
+        }
+        if (position == levelSize - 1 && (position & 1) == 0) {
+            return parent;
+        }
+        return (position & 1) == 0 ? parent.left : parent.right;
+    }
+
+    /**
+     * Returns the number of levels above the leaves in a tree of the given
+     * size.
+     */
+    private static int height(int size) {
+        return size == 1 ? 0 : 32 - Integer.numberOfLeadingZeros(size - 1);
+    }
+
+    /**
+     * Verifies a Merkle Proof against a given data element and hex root hash.
      */
     public static boolean verifyProof(String data, List<ProofNode> proof, String rootHash) {
-        String computed = hash(data); // Hash the data.
-        for (ProofNode node : proof) {
+        byte[] computed = computeRoot(data, proof);
+        if (rootHash.length() != 2 * DIGEST_LENGTH) {
+            return false;
+        }
+        // Compare nibble by nibble instead of decoding the hex string.
+        for (int i = 0; i < DIGEST_LENGTH; i++) {
+            int high = Character.digit(rootHash.charAt(2 * i), 16);
+            int low = Character.digit(rootHash.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0 || computed[i] != (byte) ((high << 4) | low)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Verifies a Merkle Proof against a given data element and root digest.
+     */
+    public static boolean verifyProof(String data, List<ProofNode> proof, byte[] rootDigest) {
+        return Arrays.equals(computeRoot(data, proof), 0, DIGEST_LENGTH, rootDigest, 0, rootDigest.length);
+    }
+
+    /**
+     * Folds a proof into a root digest. The result lives in the calling
+     * thread's scratch buffer and is only valid until the next hash on this
+     * thread.
+     */
+    private static byte[] computeRoot(String data, List<ProofNode> proof) {
+        Scratch scratch = SCRATCH.get();
+        byte[] computed = scratch.digest;
+        scratch.digestLeaf(data, computed); // Hash the data.
+        for (int i = 0; i < proof.size(); i++) {
+            ProofNode node = proof.get(i);
             if (node.isLeft) {
-                computed = hash(node.hash + computed);
+                scratch.digestNode(node.hash, computed, computed);
             } else {
-                computed = hash(computed + node.hash);
+                scratch.digestNode(computed, node.hash, computed);
             }
         }
-        return computed.equals(rootHash);
+        return computed;
     }
 
     /**
@@ -83,12 +594,15 @@ public class merkleTree {
     private Node buildTree(List<Node> nodes) {
          // Continue building the tree until only one node (the root) remains.
         while (nodes.size() > 1) {
-            List<Node> parents = new ArrayList<>();// List to store the parent nodes for the next level.
+            List<Node> parents = new ArrayList<>((nodes.size() + 1) / 2);// List to store the parent nodes for the next level.
             for (int i = 0; i < nodes.size(); i += 2) {
                 Node left = nodes.get(i);
-                Node right = (i + 1 < nodes.size()) ? nodes.get(i + 1) : left;
-                String parentHash = hash(left.hash + right.hash);
-                Node parent = new Node(parentHash, left, right);
+                if (i + 1 == nodes.size()) {
+                    parents.add(left); // Carry the odd node up unchanged
+                    break;
+                }
+                Node right = nodes.get(i + 1);
+                Node parent = new Node(nodeDigest(left.hash, right.hash), left, right);
                 left.parent = parent;
                 right.parent = parent;
                 parents.add(parent);
@@ -99,43 +613,248 @@ public class merkleTree {
     }
 
     /**
-     * Hashes the input string using a simple polynomial rolling hash function.
+     * Builds the tree level by level like {@link #buildTree(List)}, hashing the
+     * parents of each level in parallel. Must run inside a ForkJoinPool.
      */
+    private static Node buildTreeParallel(Node[] nodes) {
+        while (nodes.length > 1) {
+            Node[] level = nodes;
+            Node[] parents = new Node[(level.length + 1) / 2];
+            new RangeTask(0, parents.length, p -> {
+                Node left = level[2 * p];
+                if (2 * p + 1 == level.length) {
+                    parents[p] = left; // Carry the odd node up unchanged
+                    return;
+                }
+                Node right = level[2 * p + 1];
+                Node parent = new Node(nodeDigest(left.hash, right.hash), left, right);
+                left.parent = parent;
+                right.parent = parent;
+                parents[p] = parent;
+            }).invoke();
+            nodes = parents;
+        }
+        return nodes[0];
+    }
 
-    private static String hash(String input) {
-        long hash = 0;
-        long p = 31;// A prime number used as a multiplier.
-        long m = 1_000_000_009; // A large prime number used as the modulus
+    /**
+     * Applies a body to every index in a range, splitting the range in half
+     * until it is small enough to run directly.
+     */
+    @SuppressWarnings("serial")
+    private static final class RangeTask extends RecursiveAction {
+        private final int from, to;
+        private final IntConsumer body;
 
-        for (int i = 0; i < input.length(); i++) {
-            hash = (hash * p + input.charAt(i)) % m;
+        RangeTask(int from, int to, IntConsumer body) {
+            this.from = from;
+            this.to = to;
+            this.body = body;
         }
 
-        return Long.toString(hash);// Convert the hash to a String.
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    body.accept(i);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RangeTask(from, mid, body), new RangeTask(mid, to, body));
+        }
+    }
+
+    /**
+     * Hashes a log entry into a new leaf digest.
+     */
+    static byte[] leafDigest(String data) {
+        byte[] out = new byte[DIGEST_LENGTH];
+        SCRATCH.get().digestLeaf(data, out);
+        return out;
+    }
+
+    /**
+     * Hashes a log entry into {@code out} at the given offset.
+     */
+    static void leafDigest(String data, byte[] out, int outOffset) {
+        SCRATCH.get().digestLeaf(data, out, outOffset);
+    }
+
+    /**
+     * Hashes two child digests into a new parent digest.
+     */
+    static byte[] nodeDigest(byte[] left, byte[] right) {
+        byte[] out = new byte[DIGEST_LENGTH];
+        SCRATCH.get().digestNode(left, right, out);
+        return out;
+    }
+
+    /**
+     * Hashes two child digests, each read at its own offset, into {@code out}
+     * at the given offset. The output may overlap either input.
+     */
+    static void nodeDigest(byte[] left, int leftOffset, byte[] right, int rightOffset,
+            byte[] out, int outOffset) {
+        SCRATCH.get().digestNode(left, leftOffset, right, rightOffset, out, outOffset);
+    }
+
+    /**
+     * Hashes a log entry onto the previous link of a hash chain, writing
+     * {@code SHA-256(0x02 || previous || utf8(data))} into {@code out}, which
+     * may be the same array as {@code previous}.
+     */
+    static void linkDigest(byte[] previous, String data, byte[] out) {
+        SCRATCH.get().digestLink(previous, data, out);
+    }
+
+    /**
+     * A thread's reusable SHA-256 instance and buffers.
+     */
+    private static final class Scratch {
+        final MessageDigest sha256;
+        final byte[] digest = new byte[DIGEST_LENGTH];
+        byte[] text = new byte[256];
+
+        Scratch() {
+            try {
+                sha256 = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+
+        /**
+         * Writes {@code SHA-256(0x00 || utf8(data))} into {@code out}. The
+         * string is encoded into a reused buffer rather than a new array.
+         */
+        void digestLeaf(String data, byte[] out) {
+            digestLeaf(data, out, 0);
+        }
+
+        void digestLeaf(String data, byte[] out, int outOffset) {
+            int length = encodeUtf8(data);
+            sha256.update(LEAF_PREFIX);
+            sha256.update(text, 0, length);
+            finish(out, outOffset);
+        }
+
+        /** Writes {@code SHA-256(0x02 || previous || utf8(data))} into {@code out}. */
+        void digestLink(byte[] previous, String data, byte[] out) {
+            int length = encodeUtf8(data);
+            sha256.update(LINK_PREFIX);
+            sha256.update(previous, 0, DIGEST_LENGTH);
+            sha256.update(text, 0, length);
+            finish(out, 0);
+        }
+
+        /**
+         * Writes {@code SHA-256(0x01 || left || right)} into {@code out}, which
+         * may be the same array as either input.
+         */
+        void digestNode(byte[] left, byte[] right, byte[] out) {
+            digestNode(left, 0, right, 0, out, 0);
+        }
+
+        void digestNode(byte[] left, int leftOffset, byte[] right, int rightOffset, byte[] out, int outOffset) {
+            sha256.update(NODE_PREFIX);
+            sha256.update(left, leftOffset, DIGEST_LENGTH);
+            sha256.update(right, rightOffset, DIGEST_LENGTH);
+            finish(out, outOffset);
+        }
+
+        private void finish(byte[] out, int outOffset) {
+            try {
+                sha256.digest(out, outOffset, DIGEST_LENGTH);
+            } catch (DigestException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * Encodes a string as UTF-8 into {@link #text}, growing it if needed.
+         *
+         * @return the number of bytes written
+         */
+        private int encodeUtf8(String s) {
+            int max = s.length() * 3;
+            if (text.length < max) {
+                text = new byte[Math.max(max, text.length * 2)];
+            }
+            return merkleTree.encodeUtf8(s, text);
+        }
+    }
+
+    /**
+     * Encodes a string as UTF-8 without allocating.
+     *
+     * @param text a buffer of at least three bytes per char of {@code s}
+     * @return the number of bytes written
+     */
+    static int encodeUtf8(String s, byte[] text) {
+        int n = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                text[n++] = (byte) c;
+            } else if (c < 0x800) {
+                text[n++] = (byte) (0xC0 | (c >> 6));
+                text[n++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                text[n++] = (byte) (0xF0 | (cp >> 18));
+                text[n++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                text[n++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                text[n++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                text[n++] = (byte) '?'; // Unpaired surrogate, as String.getBytes does
+            } else {
+                text[n++] = (byte) (0xE0 | (c >> 12));
+                text[n++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                text[n++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return n;
     }
 
     /** Internal tree node */
     private static class Node {
-        String hash; // The hash value of the sibling node
+        byte[] hash; // The SHA-256 digest of this node
         Node left, right, parent;
 
-        Node(String hash) {
+        Node(byte[] hash) {
             this.hash = hash;
         }
 
-        Node(String hash, Node left, Node right) {
+        Node(byte[] hash, Node left, Node right) {
             this.hash = hash;
             this.left = left;
             this.right = right;
         }
     }
 
+    /** A single proof for several leaves of one tree */
+    public static class MultiProof {
+        public final int leafCount;
+        /** The covered leaves, in ascending order without repeats */
+        public final int[] leafIndices;
+        /** The sibling hashes not derivable from the covered leaves, bottom level first */
+        public final List<byte[]> hashes;
+
+        public MultiProof(int leafCount, int[] leafIndices, List<byte[]> hashes) {
+            this.leafCount = leafCount;
+            this.leafIndices = leafIndices;
+            this.hashes = hashes;
+        }
+    }
+
     /** Represents a step in the Merkle proof */
     public static class ProofNode {
-        public final String hash;
+        public final byte[] hash;
         public final boolean isLeft;
 
-        public ProofNode(String hash, boolean isLeft) {
+        public ProofNode(byte[] hash, boolean isLeft) {
             this.hash = hash;
             this.isLeft = isLeft;
         }
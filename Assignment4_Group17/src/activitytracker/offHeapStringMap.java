@@ -0,0 +1,519 @@
+package activitytracker;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.IntFunction;
+
+/**
+ * A linear probing hash table from strings to ints that keeps every mapping
+ * off the Java heap, so millions of keys add no objects for the garbage
+ * collector to trace. This class implements the SimpleMap interface.
+ * <p>
+ * The slot table and the key bytes live in native memory allocated through the
+ * Foreign Function &amp; Memory API. Each slot is 16 bytes: the key's hash, the
+ * value, and a reference packing the offset and length of the key's UTF-8
+ * bytes in a separate bump-allocated key heap. A lookup encodes the key into a
+ * reused buffer and compares bytes in place, allocating nothing. The key heap
+ * is compacted whenever the table is rehashed.
+ * <p>
+ * Native memory is released by {@link #close()}, not by the garbage
+ * collector; any use after closing throws {@link IllegalStateException}. The
+ * map is not thread-safe.
+ */
+public class offHeapStringMap implements simpleMap<String, Integer>, AutoCloseable {
+
+    private static final double LOAD_FACTOR = 0.75;
+    private static final double TOMBSTONE_RATIO = 0.25;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+    private static final int INITIAL_KEY_HEAP = 1 << 12;
+
+    private static final long SLOT_BYTES = 16;
+    private static final long HASH_OFFSET = 0;
+    private static final long VALUE_OFFSET = 4;
+    private static final long KEY_OFFSET = 8;
+    private static final int LENGTH_BITS = 24;
+    private static final int MAXIMUM_KEY_LENGTH = (1 << LENGTH_BITS) - 1;
+
+    // Hash values reserved to mark slots; real hashes are moved off them
+    private static final int EMPTY = 0;
+    private static final int DELETED = 1;
+
+    private Arena tableArena;
+    private MemorySegment table;
+    private Arena keyArena;
+    private MemorySegment keyHeap;
+    private long keyHeapUsed;
+    private int mask;
+    private int size;
+    private int tombstones;
+
+    private byte[] scratch = new byte[256];
+    private MemorySegment scratchSegment = MemorySegment.ofArray(scratch);
+
+    /**
+     * Constructs a hash table with at least the specified initial capacity. The
+     * capacity is rounded up to the next power of two.
+     *
+     * @param capacity initial number of slots
+     */
+    public offHeapStringMap(int capacity) {
+        allocateTable(tableSizeFor(capacity));
+        allocateKeyHeap(INITIAL_KEY_HEAP);
+    }
+
+    /**
+     * Rounds the requested capacity up to a power of two.
+     *
+     * @param capacity the requested capacity
+     * @return the smallest power of two that is at least {@code capacity}
+     */
+    private static int tableSizeFor(int capacity) {
+        if (capacity <= 1) {
+            return 1;
+        }
+        if (capacity >= MAXIMUM_CAPACITY) {
+            return MAXIMUM_CAPACITY;
+        }
+        return Integer.highestOneBit(capacity - 1) << 1;
+    }
+
+    /**
+     * Allocates an empty, zeroed slot table of the given power-of-two capacity.
+     *
+     * @param capacity the number of slots
+     */
+    private void allocateTable(int capacity) {
+        tableArena = Arena.ofShared();
+        table = tableArena.allocate(capacity * SLOT_BYTES, Long.BYTES);
+        mask = capacity - 1;
+        tombstones = 0;
+    }
+
+    /**
+     * Allocates an empty key heap of the given number of bytes.
+     *
+     * @param bytes the size of the key heap
+     */
+    private void allocateKeyHeap(long bytes) {
+        keyArena = Arena.ofShared();
+        keyHeap = keyArena.allocate(bytes, 1);
+        keyHeapUsed = 0;
+    }
+
+    /**
+     * Spreads the higher bits of the key's hash code into the lower bits, and
+     * moves hashes off the values reserved for empty and deleted slots.
+     *
+     * @param key the key
+     * @return the stored hash for the key
+     */
+    private static int hash(String key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        return (h == EMPTY || h == DELETED) ? h + 2 : h;
+    }
+
+    /**
+     * Encodes a key as UTF-8 into the scratch buffer.
+     *
+     * @param key the key
+     * @return the number of bytes written
+     */
+    private int encode(String key) {
+        int max = key.length() * 3;
+        if (scratch.length < max) {
+            scratch = new byte[Math.max(max, scratch.length * 2)];
+            scratchSegment = MemorySegment.ofArray(scratch);
+        }
+        return merkleTree.encodeUtf8(key, scratch);
+    }
+
+    private int hashAt(int index) {
+        return table.get(ValueLayout.JAVA_INT, index * SLOT_BYTES + HASH_OFFSET);
+    }
+
+    private long keyAt(int index) {
+        return table.get(ValueLayout.JAVA_LONG, index * SLOT_BYTES + KEY_OFFSET);
+    }
+
+    private int valueAt(int index) {
+        return table.get(ValueLayout.JAVA_INT, index * SLOT_BYTES + VALUE_OFFSET);
+    }
+
+    private void setSlot(int index, int h, int value, long keyRef) {
+        long base = index * SLOT_BYTES;
+        table.set(ValueLayout.JAVA_INT, base + HASH_OFFSET, h);
+        table.set(ValueLayout.JAVA_INT, base + VALUE_OFFSET, value);
+        table.set(ValueLayout.JAVA_LONG, base + KEY_OFFSET, keyRef);
+    }
+
+    /**
+     * Checks whether a slot's key equals the key in the scratch buffer.
+     *
+     * @param keyRef the packed offset and length of the slot's key
+     * @param length the length of the encoded key
+     * @return true if the bytes match
+     */
+    private boolean keyEquals(long keyRef, int length) {
+        if ((int) (keyRef & MAXIMUM_KEY_LENGTH) != length) {
+            return false;
+        }
+        long offset = keyRef >>> LENGTH_BITS;
+        return MemorySegment.mismatch(keyHeap, offset, offset + length, scratchSegment, 0, length) == -1;
+    }
+
+    /**
+     * Finds the slot holding the key in the scratch buffer.
+     *
+     * @param h      the stored hash of the key
+     * @param length the length of the encoded key
+     * @return the slot index, or -1 if not found
+     */
+    private int find(int h, int length) {
+        int index = h & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            int stored = hashAt(index);
+            if (stored == EMPTY) {
+                return -1;
+            }
+            if (stored == h && keyEquals(keyAt(index), length)) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Inserts or updates a key-value mapping in the table.
+     *
+     * @param key   the key
+     * @param value the value, which must not be null
+     * @return the previous value or null if new
+     */
+    @Override
+    public Integer put(String key, Integer value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null values are not supported");
+        }
+        if ((double) (size + tombstones + 1) / (mask + 1) > LOAD_FACTOR) {
+            resize();
+        }
+
+        int h = hash(key);
+        int length = encode(key);
+        if (length > MAXIMUM_KEY_LENGTH) {
+            throw new IllegalArgumentException("Key longer than " + MAXIMUM_KEY_LENGTH + " bytes");
+        }
+        int index = h & mask;
+        int firstDeleted = -1;
+
+        for (int probes = 0; probes <= mask; probes++) {
+            int stored = hashAt(index);
+            if (stored == EMPTY) {
+                break;
+            }
+            if (stored == DELETED) {
+                if (firstDeleted < 0) {
+                    firstDeleted = index;
+                }
+            } else if (stored == h && keyEquals(keyAt(index), length)) {
+                int oldValue = valueAt(index);
+                table.set(ValueLayout.JAVA_INT, index * SLOT_BYTES + VALUE_OFFSET, value);
+                return oldValue;
+            }
+            index = (index + 1) & mask;
+        }
+        if (firstDeleted >= 0) {
+            index = firstDeleted;
+            tombstones--;
+        } else if (hashAt(index) != EMPTY) {
+            throw new IllegalStateException("HashTable is full");
+        }
+        setSlot(index, h, value, appendKey(length));
+        size++;
+        return null;
+    }
+
+    /**
+     * Copies the key in the scratch buffer to the end of the key heap, growing
+     * the heap if needed.
+     *
+     * @param length the length of the encoded key
+     * @return the packed offset and length of the stored key
+     */
+    private long appendKey(int length) {
+        if (keyHeapUsed + length > keyHeap.byteSize()) {
+            MemorySegment oldHeap = keyHeap;
+            Arena oldArena = keyArena;
+            long used = keyHeapUsed;
+            allocateKeyHeap(Math.max(oldHeap.byteSize() * 2, used + length));
+            MemorySegment.copy(oldHeap, 0, keyHeap, 0, used);
+            keyHeapUsed = used;
+            oldArena.close();
+        }
+        long offset = keyHeapUsed;
+        MemorySegment.copy(scratchSegment, 0, keyHeap, offset, length);
+        keyHeapUsed += length;
+        return (offset << LENGTH_BITS) | length;
+    }
+
+    /**
+     * Grows the table when live entries pass the load factor, otherwise rehashes
+     * at the same capacity to clear tombstones.
+     */
+    private void resize() {
+        int newCapacity = mask + 1;
+        if ((double) (size + 1) / newCapacity > LOAD_FACTOR / 2 && newCapacity < MAXIMUM_CAPACITY) {
+            newCapacity *= 2;
+        }
+        rehash(newCapacity);
+    }
+
+    /**
+     * Reinserts all live mappings into a new table of the given capacity,
+     * dropping every tombstone and copying live keys into a new, compacted key
+     * heap. The old memory is freed.
+     *
+     * @param newCapacity the number of slots, a power of two
+     */
+    private void rehash(int newCapacity) {
+        MemorySegment oldTable = table;
+        Arena oldTableArena = tableArena;
+        MemorySegment oldHeap = keyHeap;
+        Arena oldKeyArena = keyArena;
+        long oldSlots = oldTable.byteSize() / SLOT_BYTES;
+
+        allocateTable(newCapacity);
+        allocateKeyHeap(Math.max(INITIAL_KEY_HEAP, keyHeapUsed));
+
+        for (long i = 0; i < oldSlots; i++) {
+            long base = i * SLOT_BYTES;
+            int h = oldTable.get(ValueLayout.JAVA_INT, base + HASH_OFFSET);
+            if (h == EMPTY || h == DELETED) {
+                continue;
+            }
+            long keyRef = oldTable.get(ValueLayout.JAVA_LONG, base + KEY_OFFSET);
+            int length = (int) (keyRef & MAXIMUM_KEY_LENGTH);
+            long offset = keyHeapUsed;
+            MemorySegment.copy(oldHeap, keyRef >>> LENGTH_BITS, keyHeap, offset, length);
+            keyHeapUsed += length;
+
+            int index = h & mask;
+            while (hashAt(index) != EMPTY) {
+                index = (index + 1) & mask;
+            }
+            setSlot(index, h, oldTable.get(ValueLayout.JAVA_INT, base + VALUE_OFFSET),
+                    (offset << LENGTH_BITS) | length);
+        }
+        oldTableArena.close();
+        oldKeyArena.close();
+    }
+
+    /**
+     * Retrieves a value by its key.
+     *
+     * @param key the key
+     * @return the value or null if not found
+     */
+    @Override
+    public Integer get(String key) {
+        int index = find(hash(key), encode(key));
+        return index < 0 ? null : valueAt(index);
+    }
+
+    /**
+     * Retrieves a value by its key without boxing it.
+     *
+     * @param key          the key
+     * @param defaultValue the value to return if the key is absent
+     * @return the value or {@code defaultValue} if not found
+     */
+    public int getOrDefault(String key, int defaultValue) {
+        int index = find(hash(key), encode(key));
+        return index < 0 ? defaultValue : valueAt(index);
+    }
+
+    /**
+     * Removes a key-value mapping. The key's bytes stay in the key heap until
+     * the next rehash.
+     *
+     * @param key the key to remove
+     * @return the value removed, or null if not found
+     */
+    @Override
+    public Integer remove(String key) {
+        int index = find(hash(key), encode(key));
+        if (index < 0)
+            return null;
+
+        int oldValue = valueAt(index);
+        setSlot(index, DELETED, 0, 0);
+        tombstones++;
+        size--;
+        if ((double) tombstones / (mask + 1) > TOMBSTONE_RATIO) {
+            rehash(mask + 1);
+        }
+        return oldValue;
+    }
+
+    /**
+     * Checks if the table contains the specified key.
+     *
+     * @param key the key to check
+     * @return true if present
+     */
+    public boolean containsKey(String key) {
+        return find(hash(key), encode(key)) >= 0;
+    }
+
+    /**
+     * Returns the number of key-value pairs in the table.
+     *
+     * @return size of map
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if the map is empty.
+     *
+     * @return true if no entries
+     */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of native bytes held by the slot table and key heap.
+     *
+     * @return off-heap footprint in bytes
+     */
+    public long offHeapBytes() {
+        return table.byteSize() + keyHeap.byteSize();
+    }
+
+    /**
+     * Decodes the key stored in a slot into a new string.
+     *
+     * @param index the slot index
+     * @return the key
+     */
+    private String keyString(int index) {
+        long keyRef = keyAt(index);
+        byte[] bytes = new byte[(int) (keyRef & MAXIMUM_KEY_LENGTH)];
+        MemorySegment.copy(keyHeap, ValueLayout.JAVA_BYTE, keyRef >>> LENGTH_BITS, bytes, 0, bytes.length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private boolean isLive(int index) {
+        int h = hashAt(index);
+        return h != EMPTY && h != DELETED;
+    }
+
+    /**
+     * Returns a live collection of the keys, each decoded onto the heap as the
+     * traversal reaches it.
+     *
+     * @return a collection of keys
+     */
+    @Override
+    public Collection<String> keys() {
+        return slotSpliterator.view(this::size,
+                () -> spliterator(this::keyString, Spliterator.DISTINCT | Spliterator.NONNULL));
+    }
+
+    /**
+     * Returns a live collection of the values.
+     *
+     * @return a collection of values
+     */
+    @Override
+    public Collection<Integer> values() {
+        return slotSpliterator.view(this::size, () -> spliterator(this::valueAt, Spliterator.NONNULL));
+    }
+
+    /**
+     * Returns a live collection of the entries, with keys decoded onto the heap
+     * as the traversal reaches them.
+     *
+     * @return a collection of key-value entries
+     */
+    @Override
+    public Collection<simpleMap.Entry<String, Integer>> entries() {
+        return slotSpliterator.view(this::size, () -> spliterator(i -> new Entry(keyString(i), valueAt(i)),
+                Spliterator.DISTINCT | Spliterator.NONNULL));
+    }
+
+    /**
+     * Performs an action for every mapping, decoding each key onto the heap.
+     *
+     * @param action the action to perform for each mapping
+     */
+    @Override
+    public void forEach(BiConsumer<? super String, ? super Integer> action) {
+        for (int i = 0; i <= mask; i++) {
+            if (isLive(i)) {
+                action.accept(keyString(i), valueAt(i));
+            }
+        }
+    }
+
+    /**
+     * Creates a spliterator over the live slots of the table. The slot table
+     * is shared between threads, so the ranges can be read in parallel.
+     *
+     * @param extract         maps a live slot index to the element handed out
+     * @param characteristics the characteristics of the elements
+     * @return a spliterator that splits by slot range
+     */
+    private <E> Spliterator<E> spliterator(IntFunction<E> extract, int characteristics) {
+        return new slotSpliterator<E>((slot, action) -> {
+            if (isLive(slot)) {
+                action.accept(extract.apply(slot));
+            }
+        }, 0, mask + 1, size, characteristics);
+    }
+
+    /**
+     * Frees the slot table and key heap. The map cannot be used afterwards.
+     */
+    @Override
+    public void close() {
+        tableArena.close();
+        keyArena.close();
+    }
+
+    /**
+     * An immutable key-value pair handed out by {@link #entries()}.
+     */
+    private static class Entry implements simpleMap.Entry<String, Integer> {
+        final String key;
+        final Integer value;
+
+        Entry(String key, Integer value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        /** @return the key of the entry */
+        @Override
+        public String key() {
+            return key;
+        }
+
+        /** @return the value of the entry */
+        @Override
+        public Integer value() {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package activitytracker;
+
+/**
+ * How a hash table moves its entries when it grows.
+ */
+public enum resizeMode {
+    /** Rehash every entry into the larger table within a single operation. */
+    FULL,
+    /**
+     * Keep the old and new tables side by side and move a bounded number of
+     * slots on each operation, so no single operation pays for the whole
+     * rehash.
+     */
+    INCREMENTAL
+}
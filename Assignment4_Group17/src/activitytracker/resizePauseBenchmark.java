@@ -0,0 +1,81 @@
+package activitytracker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * A benchmark for the worst-case latency of a single operation while a table
+ * grows from a small initial capacity. {@code benchmark} presizes its tables so
+ * they never resize; here every doubling happens during the run, and each put
+ * is timed on its own so the longest rehash pause shows up in MaxPut.
+ */
+public class resizePauseBenchmark {
+
+    private static final int KEYS = 5_000_000;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final long SLOW_OP_NANOS = 1_000_000;
+
+    private static List<String> generateKeys(int n) {
+        List<String> keys = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            keys.add(UUID.randomUUID().toString());
+        }
+        return keys;
+    }
+
+    private static void benchmark(String name, simpleMap<String, Integer> map, List<String> keys) {
+        long maxPut = 0;
+        long slowPuts = 0;
+        long total = 0;
+
+        for (String k : keys) {
+            long start = System.nanoTime();
+            map.put(k, 1);
+            long elapsed = System.nanoTime() - start;
+            total += elapsed;
+            maxPut = Math.max(maxPut, elapsed);
+            if (elapsed > SLOW_OP_NANOS) {
+                slowPuts++;
+            }
+        }
+
+        long maxGet = 0;
+        for (String k : keys) {
+            long start = System.nanoTime();
+            map.get(k);
+            maxGet = Math.max(maxGet, System.nanoTime() - start);
+        }
+
+        System.out.printf(Locale.US, "%s,%d,%.3f,%.3f,%d,%.3f\n",
+                name, keys.size(),
+                total / 1e6,
+                maxPut / 1e6,
+                slowPuts,
+                maxGet / 1e6);
+    }
+
+    public static void main(String[] args) {
+        List<String> keys = generateKeys(KEYS);
+
+        System.out.println("MapType,Keys,TotalPutTime(ms),MaxPut(ms),PutsOver1ms,MaxGet(ms)");
+
+        benchmark("LinearProbing-Full",
+                new linearProbingHashTable<>(INITIAL_CAPACITY, 0.75, linearProbingHashTable.Probing.LINEAR,
+                        resizeMode.FULL),
+                keys);
+        benchmark("LinearProbing-Incremental",
+                new linearProbingHashTable<>(INITIAL_CAPACITY, 0.75, linearProbingHashTable.Probing.LINEAR,
+                        resizeMode.INCREMENTAL),
+                keys);
+        benchmark("RobinHood-Incremental",
+                new linearProbingHashTable<>(INITIAL_CAPACITY, 0.9, linearProbingHashTable.Probing.ROBIN_HOOD,
+                        resizeMode.INCREMENTAL),
+                keys);
+        benchmark("SeparateChaining-Full",
+                new separateChainingHashTable<>(INITIAL_CAPACITY, resizeMode.FULL), keys);
+        benchmark("SeparateChaining-Incremental",
+                new separateChainingHashTable<>(INITIAL_CAPACITY, resizeMode.INCREMENTAL), keys);
+    }
+}
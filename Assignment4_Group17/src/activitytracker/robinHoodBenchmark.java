@@ -0,0 +1,71 @@
+package activitytracker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * A benchmark comparing plain linear probing with Robin Hood probing as the
+ * table fills up. For each target load the table is sized so it reaches that
+ * load without resizing, and the displacement statistics are reported next to
+ * successful and unsuccessful lookup times.
+ */
+public class robinHoodBenchmark {
+
+    private static final int KEYS = 1_000_000;
+    private static final double[] LOADS = { 0.5, 0.6, 0.7, 0.75, 0.8, 0.85, 0.9, 0.95 };
+
+    private static List<String> generateKeys(int n) {
+        List<String> keys = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            keys.add(UUID.randomUUID().toString());
+        }
+        return keys;
+    }
+
+    private static void benchmark(linearProbingHashTable.Probing probing, double load, List<String> keys,
+            List<String> missingKeys) {
+        int capacity = (int) Math.ceil(keys.size() / load) + 1;
+        linearProbingHashTable<String, Integer> map = new linearProbingHashTable<>(capacity, 0.99, probing);
+
+        for (String k : keys) {
+            map.put(k, 1);
+        }
+
+        // Lookup
+        long start = System.nanoTime();
+        for (String k : keys) {
+            map.get(k);
+        }
+        long hitTime = System.nanoTime() - start;
+
+        // Unsuccessful lookup
+        start = System.nanoTime();
+        for (String k : missingKeys) {
+            map.get(k);
+        }
+        long missTime = System.nanoTime() - start;
+
+        System.out.printf(Locale.US, "%s,%.2f,%d,%.3f,%d,%d,%.1f,%.1f\n",
+                probing, load, capacity,
+                map.meanDisplacement(),
+                map.displacementPercentile(0.99),
+                map.maxDisplacement(),
+                (double) hitTime / keys.size(),
+                (double) missTime / missingKeys.size());
+    }
+
+    public static void main(String[] args) {
+        List<String> keys = generateKeys(KEYS);
+        List<String> missingKeys = generateKeys(KEYS);
+
+        System.out.println(
+                "Probing,Load,Capacity,MeanDisplacement,P99Displacement,MaxDisplacement,GetHit(ns/op),GetMiss(ns/op)");
+
+        for (double load : LOADS) {
+            benchmark(linearProbingHashTable.Probing.LINEAR, load, keys, missingKeys);
+            benchmark(linearProbingHashTable.Probing.ROBIN_HOOD, load, keys, missingKeys);
+        }
+    }
+}
@@ -1,13 +1,37 @@
 package activitytracker;
 
-import java.util.ArrayList;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
 
 /**
  * A hash table implementation using separate chaining for collision resolution.
+ * <p>
+ * Buckets are created on first use. A bucket holding a single mapping, the
+ * common case at the default load factor, stores it in three fields; a
+ * longer chain is kept in compact parallel arrays; once a chain reaches
+ * {@link #TREEIFY_THRESHOLD} entries and its keys are mutually comparable, it
+ * is converted into a balanced tree ordered by hash code and then by the keys'
+ * natural order, so a bucket flooded with colliding keys still answers lookups
+ * in O(log n).
+ * <p>
+ * Keys are hashed and mapped to buckets by a {@link hasher}: the key's own
+ * hash code taken modulo the capacity unless another one is given at
+ * construction.
  *
  * @param <K> the type of keys maintained by this map
  * @param <V> the type of mapped values
@@ -15,11 +39,11 @@ import java.util.List;
 public class separateChainingHashTable<K, V> implements simpleMap<K, V> {
 
     /**
-     * Represents a key-value pair stored in the hash table.
+     * Represents a key-value pair handed out by {@link #entries()}.
      */
     private static class Entry<K, V> implements simpleMap.Entry<K, V> {
         final K key;
-        V value;
+        final V value;
 
         /**
          * Constructs an Entry with the given key and value.
@@ -45,66 +69,575 @@ public class separateChainingHashTable<K, V> implements simpleMap<K, V> {
         }
     }
 
+    /** Returned by bucket operations when the key is not in the bucket. */
+    private static final Object ABSENT = new Object();
+
+    /**
+     * A chain of mappings that hash to the same index.
+     */
+    private abstract static class Bucket<K, V> {
+        /**
+         * @param key  the key
+         * @param hash the hash of the key
+         * @return the mapped value, or {@link #ABSENT}
+         */
+        abstract Object get(K key, int hash);
+
+        /**
+         * Replaces the value of an existing mapping.
+         *
+         * @return the previous value, or {@link #ABSENT} if the key is not present
+         */
+        abstract Object replace(K key, int hash, V value);
+
+        /**
+         * Adds a mapping for a key known not to be in the bucket.
+         *
+         * @param hashing the table's hasher, which a bucket converted to a tree
+         *                keeps to hash its keys again
+         * @return the bucket that now holds the chain, which may be a converted
+         *         copy of this one
+         */
+        abstract Bucket<K, V> add(K key, int hash, V value, hasher hashing);
+
+        /**
+         * Removes a mapping.
+         *
+         * @return the removed value, or {@link #ABSENT} if the key is not present
+         */
+        abstract Object remove(K key, int hash);
+
+        /**
+         * @return the bucket that should hold the chain after a removal, which may
+         *         be a converted copy of this one
+         */
+        abstract Bucket<K, V> afterRemove();
+
+        /** @return the number of mappings in the bucket */
+        abstract int size();
+
+        /**
+         * Adds every mapping of the bucket to a table of buckets.
+         *
+         * @param dest    the table to add to
+         * @param hashing the table's hasher
+         */
+        abstract void transferTo(Bucket<K, V>[] dest, hasher hashing);
+
+        /**
+         * Performs an action for every mapping of the bucket.
+         *
+         * @param action the action to perform for each mapping
+         */
+        abstract void forEach(BiConsumer<? super K, ? super V> action);
+
+        /**
+         * Writes the hash, key and value of every mapping of the bucket.
+         *
+         * @param out the stream to write to
+         */
+        abstract void writeTo(DataOutput out, codec<K> keyCodec, codec<V> valueCodec) throws IOException;
+    }
+
+    /**
+     * A bucket holding exactly one mapping in its own fields, so the common
+     * case costs one small object instead of a bucket and three arrays. A
+     * second mapping turns it into an {@link ArrayBucket}.
+     */
+    private static final class SingleBucket<K, V> extends Bucket<K, V> {
+        K key;
+        V value;
+        final int hash;
+
+        SingleBucket(K key, int hash, V value) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+        }
+
+        private boolean holds(K key, int hash) {
+            return this.key != null && this.hash == hash && this.key.equals(key);
+        }
+
+        @Override
+        Object get(K key, int hash) {
+            return holds(key, hash) ? value : ABSENT;
+        }
+
+        @Override
+        Object replace(K key, int hash, V value) {
+            if (!holds(key, hash)) {
+                return ABSENT;
+            }
+            V oldValue = this.value;
+            this.value = value;
+            return oldValue;
+        }
+
+        @Override
+        Bucket<K, V> add(K key, int hash, V value, hasher hashing) {
+            ArrayBucket<K, V> chain = new ArrayBucket<>(INITIAL_BUCKET_CAPACITY);
+            chain.add(this.key, this.hash, this.value, hashing);
+            return chain.add(key, hash, value, hashing);
+        }
+
+        @Override
+        Object remove(K key, int hash) {
+            if (!holds(key, hash)) {
+                return ABSENT;
+            }
+            V oldValue = value;
+            this.key = null;
+            this.value = null;
+            return oldValue;
+        }
+
+        @Override
+        Bucket<K, V> afterRemove() {
+            return key == null ? null : this;
+        }
+
+        @Override
+        int size() {
+            return key == null ? 0 : 1;
+        }
+
+        @Override
+        void transferTo(Bucket<K, V>[] dest, hasher hashing) {
+            insert(dest, key, hash, value, hashing);
+        }
+
+        @Override
+        void forEach(BiConsumer<? super K, ? super V> action) {
+            action.accept(key, value);
+        }
+
+        @Override
+        void writeTo(DataOutput out, codec<K> keyCodec, codec<V> valueCodec) throws IOException {
+            writeMapping(out, hash, key, value, keyCodec, valueCodec);
+        }
+    }
+
+    /**
+     * A chain stored in parallel arrays, with the hash of each key cached so
+     * {@code equals} is only called when the hashes match.
+     */
+    private static final class ArrayBucket<K, V> extends Bucket<K, V> {
+        Object[] keys;
+        Object[] values;
+        int[] hashes;
+        int count;
+
+        ArrayBucket(int capacity) {
+            keys = new Object[capacity];
+            values = new Object[capacity];
+            hashes = new int[capacity];
+        }
+
+        private int indexOf(K key, int hash) {
+            for (int i = 0; i < count; i++) {
+                if (hashes[i] == hash && keys[i].equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Object get(K key, int hash) {
+            int i = indexOf(key, hash);
+            return i < 0 ? ABSENT : values[i];
+        }
+
+        @Override
+        Object replace(K key, int hash, V value) {
+            int i = indexOf(key, hash);
+            if (i < 0) {
+                return ABSENT;
+            }
+            Object oldValue = values[i];
+            values[i] = value;
+            return oldValue;
+        }
+
+        @Override
+        Bucket<K, V> add(K key, int hash, V value, hasher hashing) {
+            if (count == keys.length) {
+                int newCapacity = keys.length * 2;
+                Object[] newKeys = new Object[newCapacity];
+                Object[] newValues = new Object[newCapacity];
+                int[] newHashes = new int[newCapacity];
+                System.arraycopy(keys, 0, newKeys, 0, count);
+                System.arraycopy(values, 0, newValues, 0, count);
+                System.arraycopy(hashes, 0, newHashes, 0, count);
+                keys = newKeys;
+                values = newValues;
+                hashes = newHashes;
+            }
+            keys[count] = key;
+            values[count] = value;
+            hashes[count] = hash;
+            count++;
+
+            if (count >= TREEIFY_THRESHOLD && keysComparable()) {
+                return treeify(hashing);
+            }
+            return this;
+        }
+
+        @Override
+        Object remove(K key, int hash) {
+            int i = indexOf(key, hash);
+            if (i < 0) {
+                return ABSENT;
+            }
+            Object oldValue = values[i];
+            // Move the last mapping into the gap
+            count--;
+            keys[i] = keys[count];
+            values[i] = values[count];
+            hashes[i] = hashes[count];
+            keys[count] = null;
+            values[count] = null;
+            return oldValue;
+        }
+
+        @Override
+        Bucket<K, V> afterRemove() {
+            return count == 0 ? null : this;
+        }
+
+        @Override
+        int size() {
+            return count;
+        }
+
+        /**
+         * @return true if every key is of the same class and that class is
+         *         {@link Comparable}, so the keys can be ordered in a tree
+         */
+        private boolean keysComparable() {
+            Class<?> type = keys[0].getClass();
+            if (!(keys[0] instanceof Comparable)) {
+                return false;
+            }
+            for (int i = 1; i < count; i++) {
+                if (keys[i].getClass() != type) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return a tree bucket holding the same mappings
+         */
+        @SuppressWarnings("unchecked")
+        private TreeBucket<K, V> treeify(hasher hashing) {
+            TreeBucket<K, V> tree = new TreeBucket<>(keys[0].getClass(), hashing);
+            for (int i = 0; i < count; i++) {
+                tree.map.put((K) keys[i], (V) values[i]);
+            }
+            return tree;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        void transferTo(Bucket<K, V>[] dest, hasher hashing) {
+            for (int i = 0; i < count; i++) {
+                insert(dest, (K) keys[i], hashes[i], (V) values[i], hashing);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        void forEach(BiConsumer<? super K, ? super V> action) {
+            for (int i = 0; i < count; i++) {
+                action.accept((K) keys[i], (V) values[i]);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        void writeTo(DataOutput out, codec<K> keyCodec, codec<V> valueCodec) throws IOException {
+            for (int i = 0; i < count; i++) {
+                writeMapping(out, hashes[i], (K) keys[i], (V) values[i], keyCodec, valueCodec);
+            }
+        }
+    }
+
+    /**
+     * A chain stored as a red-black tree, ordered by hash code and then by the
+     * keys' natural order. The tree does not cache the table's hashes, so it
+     * keeps the table's hasher to compute them again when it is converted
+     * back, moved or written.
+     */
+    private static final class TreeBucket<K, V> extends Bucket<K, V> {
+        final Class<?> keyType;
+        final TreeMap<K, V> map;
+        final hasher hashing;
+
+        @SuppressWarnings("unchecked")
+        TreeBucket(Class<?> keyType, hasher hashing) {
+            this.keyType = keyType;
+            this.hashing = hashing;
+            this.map = new TreeMap<>((Comparator<K>) HASH_ORDER);
+        }
+
+        @Override
+        Object get(K key, int hash) {
+            if (key.getClass() != keyType) {
+                return ABSENT;
+            }
+            V value = map.get(key);
+            return value != null || map.containsKey(key) ? value : ABSENT;
+        }
+
+        @Override
+        Object replace(K key, int hash, V value) {
+            if (key.getClass() != keyType || !map.containsKey(key)) {
+                return ABSENT;
+            }
+            return map.put(key, value);
+        }
+
+        @Override
+        Bucket<K, V> add(K key, int hash, V value, hasher hashing) {
+            if (key.getClass() != keyType) {
+                // A key that cannot be ordered with the others: fall back to a chain
+                ArrayBucket<K, V> chain = untreeify(map.size() + 1);
+                return chain.add(key, hash, value, hashing);
+            }
+            map.put(key, value);
+            return this;
+        }
+
+        @Override
+        Object remove(K key, int hash) {
+            if (key.getClass() != keyType || !map.containsKey(key)) {
+                return ABSENT;
+            }
+            return map.remove(key);
+        }
+
+        @Override
+        Bucket<K, V> afterRemove() {
+            return map.size() < UNTREEIFY_THRESHOLD ? untreeify(TREEIFY_THRESHOLD) : this;
+        }
+
+        @Override
+        int size() {
+            return map.size();
+        }
+
+        /**
+         * @param capacity the initial capacity of the chain
+         * @return an array bucket holding the same mappings
+         */
+        private ArrayBucket<K, V> untreeify(int capacity) {
+            ArrayBucket<K, V> chain = new ArrayBucket<>(Math.max(capacity, map.size()));
+            for (Map.Entry<K, V> e : map.entrySet()) {
+                chain.keys[chain.count] = e.getKey();
+                chain.values[chain.count] = e.getValue();
+                chain.hashes[chain.count] = hashing.hash(e.getKey());
+                chain.count++;
+            }
+            return chain;
+        }
+
+        @Override
+        void transferTo(Bucket<K, V>[] dest, hasher hashing) {
+            for (Map.Entry<K, V> e : map.entrySet()) {
+                insert(dest, e.getKey(), hashing.hash(e.getKey()), e.getValue(), hashing);
+            }
+        }
+
+        @Override
+        void forEach(BiConsumer<? super K, ? super V> action) {
+            map.forEach(action);
+        }
+
+        @Override
+        void writeTo(DataOutput out, codec<K> keyCodec, codec<V> valueCodec) throws IOException {
+            for (Map.Entry<K, V> e : map.entrySet()) {
+                writeMapping(out, hashing.hash(e.getKey()), e.getKey(), e.getValue(), keyCodec, valueCodec);
+            }
+        }
+    }
+
+    /** Orders tree bucket keys by hash code, then by natural order. */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static final Comparator<Object> HASH_ORDER = (a, b) -> {
+        int c = Integer.compare(a.hashCode(), b.hashCode());
+        return c != 0 ? c : ((Comparable) a).compareTo(b);
+    };
+
     private static final double LOAD_FACTOR = 0.75;
-    private List<Entry<K, V>>[] table;
+    private static final int MIGRATION_STEP = 16;
+    private static final int BATCH_GROUP = 16;
+    private static final int INITIAL_BUCKET_CAPACITY = 2;
+    private static final int TREEIFY_THRESHOLD = 8;
+    private static final int UNTREEIFY_THRESHOLD = 6;
+    private static final int SNAPSHOT_MAGIC = 0x53434854; // "SCHT"
+    private static final int SNAPSHOT_VERSION = 2;
+    private static final int SNAPSHOT_BUFFER = 1 << 16;
+    private Bucket<K, V>[] table;
     private int size;
+    private final resizeMode resizing;
+    private final hasher hashing;
+    private final tableStats.Recorder stats;
+
+    // Buckets still waiting to be moved during an incremental resize
+    private Bucket<K, V>[] oldTable;
+    private int migrateIndex;
 
     /**
      * Constructs a hash table with the specified initial capacity.
      *
      * @param capacity the initial number of buckets
      */
-    @SuppressWarnings("unchecked")
     public separateChainingHashTable(int capacity) {
-        table = new List[capacity];
-        for (int i = 0; i < capacity; i++) {
-            table[i] = new LinkedList<>();
-        }
+        this(capacity, resizeMode.FULL);
+    }
+
+    /**
+     * Constructs a hash table with the specified initial capacity and resize
+     * mode. Buckets are created on first use.
+     *
+     * @param capacity the initial number of buckets
+     * @param resizing how entries are moved when the table grows
+     */
+    public separateChainingHashTable(int capacity, resizeMode resizing) {
+        this(capacity, resizing, false);
+    }
+
+    /**
+     * Constructs a hash table with the specified initial capacity and resize
+     * mode, optionally recording operation stats for {@link #stats()}.
+     *
+     * @param capacity    the initial number of buckets
+     * @param resizing    how entries are moved when the table grows
+     * @param recordStats whether to count lookups and time resizes
+     */
+    public separateChainingHashTable(int capacity, resizeMode resizing, boolean recordStats) {
+        this(capacity, resizing, recordStats, hasher.MODULO);
+    }
+
+    /**
+     * Constructs a hash table with the specified initial capacity and hashing
+     * strategy, which resizes fully.
+     *
+     * @param capacity the initial number of buckets, rounded by the hasher
+     * @param hashing  how keys are hashed and mapped to buckets
+     */
+    public separateChainingHashTable(int capacity, hasher hashing) {
+        this(capacity, resizeMode.FULL, false, hashing);
+    }
+
+    /**
+     * Constructs a hash table with every setting specified.
+     *
+     * @param capacity    the initial number of buckets, rounded by the hasher
+     * @param resizing    how entries are moved when the table grows
+     * @param recordStats whether to count lookups and time resizes
+     * @param hashing     how keys are hashed and mapped to buckets
+     */
+    @SuppressWarnings("unchecked")
+    public separateChainingHashTable(int capacity, resizeMode resizing, boolean recordStats, hasher hashing) {
+        table = new Bucket[hashing.tableSize(capacity)];
         size = 0;
+        this.resizing = resizing;
+        this.hashing = hashing;
+        this.stats = recordStats ? new tableStats.Recorder(statsName()) : null;
     }
 
     /**
-     * Computes the index in the table for the specified key and capacity.
+     * Adds a mapping known not to be present to a table of buckets, creating or
+     * converting the bucket as needed.
      *
-     * @param key      the key
-     * @param capacity the number of buckets
-     * @return the hash index
+     * @param buckets the table
+     * @param key     the key
+     * @param hash    the hash of the key
+     * @param value   the value
+     * @param hashing the table's hasher
      */
-    private int hash(K key, int capacity) {
-        return (key.hashCode() & 0x7FFFFFFF) % capacity;
+    private static <K, V> void insert(Bucket<K, V>[] buckets, K key, int hash, V value, hasher hashing) {
+        int index = hashing.indexFor(hash, buckets.length);
+        Bucket<K, V> bucket = buckets[index];
+        buckets[index] = bucket == null ? new SingleBucket<>(key, hash, value)
+                : bucket.add(key, hash, value, hashing);
     }
 
     /**
-     * Computes the index in the table for the specified key.
+     * Returns the bucket of the old table that may still hold a key during an
+     * incremental resize.
      *
-     * @param key the key
-     * @return the hash index
+     * @param hash the hash of the key
+     * @return the unmigrated old bucket, or null if the key can only be in the
+     *         current table
      */
-    private int hash(K key) {
-        return hash(key, table.length);
+    private Bucket<K, V> oldBucket(int hash) {
+        if (oldTable == null) {
+            return null;
+        }
+        int index = hashing.indexFor(hash, oldTable.length);
+        return index >= migrateIndex ? oldTable[index] : null;
     }
 
     /**
-     * Resizes the table to double the current capacity and rehashes all entries.
+     * Resizes the table to double the current capacity. In full mode every entry
+     * is moved now; in incremental mode the old buckets are kept and moved a few
+     * at a time by later operations.
      */
     private void resize() {
-        List<Entry<K, V>>[] oldTable = table;
-        int newCapacity = oldTable.length * 2;
-
-        @SuppressWarnings("unchecked")
-        List<Entry<K, V>>[] newTable = new List[newCapacity];
-        for (int i = 0; i < newCapacity; i++) {
-            newTable[i] = new LinkedList<>();
+        if (stats != null) {
+            stats.beginResize();
         }
+        finishMigration();
 
+        Bucket<K, V>[] previous = table;
+        @SuppressWarnings("unchecked")
+        Bucket<K, V>[] newTable = new Bucket[hashing.tableSize(previous.length * 2)];
         table = newTable;
-        size = 0;
 
-        for (List<Entry<K, V>> bucket : oldTable) {
-            for (Entry<K, V> entry : bucket) {
-                put(entry.key, entry.value);
+        oldTable = previous;
+        migrateIndex = 0;
+        if (resizing == resizeMode.FULL) {
+            finishMigration();
+        }
+        if (stats != null) {
+            stats.endResize(previous.length, table.length, size);
+        }
+    }
+
+    /**
+     * Moves up to {@link #MIGRATION_STEP} buckets from the old table into the
+     * current one.
+     */
+    private void migrateStep() {
+        if (oldTable == null) {
+            return;
+        }
+        int end = Math.min(migrateIndex + MIGRATION_STEP, oldTable.length);
+        for (; migrateIndex < end; migrateIndex++) {
+            Bucket<K, V> bucket = oldTable[migrateIndex];
+            if (bucket != null) {
+                bucket.transferTo(table, hashing);
+                oldTable[migrateIndex] = null;
             }
         }
+        if (migrateIndex == oldTable.length) {
+            oldTable = null;
+        }
+    }
+
+    /**
+     * Moves every remaining bucket from the old table into the current one.
+     */
+    private void finishMigration() {
+        while (oldTable != null) {
+            migrateStep();
+        }
     }
 
     /**
@@ -115,23 +648,27 @@ public class separateChainingHashTable<K, V> implements simpleMap<K, V> {
      * @return the old value if the key was already present, or null otherwise
      */
     @Override
+    @SuppressWarnings("unchecked")
     public V put(K key, V value) {
-        if ((double) (size + 1) / table.length > LOAD_FACTOR) {
-            resize();
-        }
-
-        int index = hash(key);
-        List<Entry<K, V>> bucket = table[index];
+        migrateStep();
 
-        for (Entry<K, V> entry : bucket) {
-            if (entry.key.equals(key)) {
-                V oldValue = entry.value;
-                entry.value = value;
-                return oldValue;
+        int h = hashing.hash(key);
+        Bucket<K, V> bucket = table[hashing.indexFor(h, table.length)];
+        Object oldValue = bucket == null ? ABSENT : bucket.replace(key, h, value);
+        if (oldValue == ABSENT) {
+            Bucket<K, V> old = oldBucket(h);
+            if (old != null) {
+                oldValue = old.replace(key, h, value);
             }
         }
+        if (oldValue != ABSENT) {
+            return (V) oldValue;
+        }
 
-        bucket.add(new Entry<>(key, value));
+        if ((double) (size + 1) / table.length > LOAD_FACTOR) {
+            resize();
+        }
+        insert(table, key, h, value, hashing);
         size++;
         return null;
     }
@@ -143,14 +680,23 @@ public class separateChainingHashTable<K, V> implements simpleMap<K, V> {
      * @return the value, or null if not found
      */
     @Override
+    @SuppressWarnings("unchecked")
     public V get(K key) {
-        int index = hash(key);
-        for (Entry<K, V> entry : table[index]) {
-            if (entry.key.equals(key)) {
-                return entry.value;
+        migrateStep();
+
+        int h = hashing.hash(key);
+        Bucket<K, V> bucket = table[hashing.indexFor(h, table.length)];
+        Object value = bucket == null ? ABSENT : bucket.get(key, h);
+        if (value == ABSENT) {
+            Bucket<K, V> old = oldBucket(h);
+            if (old != null) {
+                value = old.get(key, h);
             }
         }
-        return null;
+        if (stats != null) {
+            stats.recordLookup(bucket == null ? 0 : bucket.size(), value != ABSENT);
+        }
+        return value == ABSENT ? null : (V) value;
     }
 
     /**
@@ -160,19 +706,207 @@ public class separateChainingHashTable<K, V> implements simpleMap<K, V> {
      * @return the value removed, or null if the key was not present
      */
     @Override
+    @SuppressWarnings("unchecked")
     public V remove(K key) {
-        int index = hash(key);
-        Iterator<Entry<K, V>> iterator = table[index].iterator();
-        while (iterator.hasNext()) {
-            Entry<K, V> entry = iterator.next();
-            if (entry.key.equals(key)) {
-                V value = entry.value;
-                iterator.remove();
-                size--;
-                return value;
+        migrateStep();
+
+        int h = hashing.hash(key);
+        Object value = removeFrom(table, hashing.indexFor(h, table.length), key, h);
+        if (value == ABSENT && oldBucket(h) != null) {
+            value = removeFrom(oldTable, hashing.indexFor(h, oldTable.length), key, h);
+        }
+        if (value == ABSENT) {
+            return null;
+        }
+        size--;
+        return (V) value;
+    }
+
+    /**
+     * Removes a key from a single bucket of a table, dropping or converting the
+     * bucket as needed.
+     *
+     * @param buckets the table
+     * @param index   the bucket index
+     * @param key     the key
+     * @param hash    the hash of the key
+     * @return the value removed, or {@link #ABSENT} if the key was not in the
+     *         bucket
+     */
+    private Object removeFrom(Bucket<K, V>[] buckets, int index, K key, int hash) {
+        Bucket<K, V> bucket = buckets[index];
+        if (bucket == null) {
+            return ABSENT;
+        }
+        Object value = bucket.remove(key, hash);
+        if (value != ABSENT) {
+            buckets[index] = bucket.afterRemove();
+        }
+        return value;
+    }
+
+    /**
+     * Inserts or updates every mapping of a batch in groups, as described on
+     * {@link simpleMap#putAll}. An incremental resize in progress is finished
+     * and the table is grown at once, doubling until the batch fits.
+     *
+     * @param keys   the keys
+     * @param values the values, one per key
+     */
+    @Override
+    public void putAll(List<? extends K> keys, List<? extends V> values) {
+        if (keys.size() != values.size()) {
+            throw new IllegalArgumentException(keys.size() + " keys but " + values.size() + " values");
+        }
+        int n = keys.size();
+        finishMigration();
+        int capacity = table.length;
+        while ((double) (size + n) / capacity > LOAD_FACTOR) {
+            capacity = hashing.tableSize(capacity * 2);
+        }
+        if (capacity > table.length) {
+            int fromCapacity = table.length;
+            if (stats != null) {
+                stats.beginResize();
+            }
+            growTo(capacity);
+            if (stats != null) {
+                stats.endResize(fromCapacity, capacity, size);
             }
         }
-        return null;
+        int[] h = hashing.hashAll(keys);
+        Bucket<K, V>[] group = newGroup();
+        for (int base = 0; base < n; base += BATCH_GROUP) {
+            int end = Math.min(base + BATCH_GROUP, n);
+            touchGroup(h, base, end, group);
+            for (int i = base; i < end; i++) {
+                K key = keys.get(i);
+                V value = values.get(i);
+                Bucket<K, V> bucket = table[hashing.indexFor(h[i], table.length)];
+                if (bucket == null || bucket.replace(key, h[i], value) == ABSENT) {
+                    insert(table, key, h[i], value, hashing);
+                    size++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Looks up every key of a batch in groups. An incremental resize in
+     * progress is finished first.
+     *
+     * @param keys the keys
+     * @return the value of each key in the same order, null where not found
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<V> getAll(List<? extends K> keys) {
+        finishMigration();
+        int n = keys.size();
+        int[] h = hashing.hashAll(keys);
+        Object[] result = new Object[n];
+        Bucket<K, V>[] group = newGroup();
+        for (int base = 0; base < n; base += BATCH_GROUP) {
+            int end = Math.min(base + BATCH_GROUP, n);
+            touchGroup(h, base, end, group);
+            for (int i = base; i < end; i++) {
+                Bucket<K, V> bucket = group[i - base];
+                Object value = bucket == null ? ABSENT : bucket.get(keys.get(i), h[i]);
+                result[i] = value == ABSENT ? null : value;
+                if (stats != null) {
+                    stats.recordLookup(bucket == null ? 0 : bucket.size(), value != ABSENT);
+                }
+            }
+        }
+        return (List<V>) Arrays.asList(result);
+    }
+
+    /**
+     * Removes every key of a batch in groups like {@link #getAll}.
+     *
+     * @param keys the keys
+     * @return the value removed for each key in the same order, null where not
+     *         present
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<V> removeAll(List<? extends K> keys) {
+        finishMigration();
+        int n = keys.size();
+        int[] h = hashing.hashAll(keys);
+        Object[] result = new Object[n];
+        Bucket<K, V>[] group = newGroup();
+        for (int base = 0; base < n; base += BATCH_GROUP) {
+            int end = Math.min(base + BATCH_GROUP, n);
+            touchGroup(h, base, end, group);
+            for (int i = base; i < end; i++) {
+                Object value = removeFrom(table, hashing.indexFor(h[i], table.length), keys.get(i), h[i]);
+                if (value != ABSENT) {
+                    size--;
+                    result[i] = value;
+                }
+            }
+        }
+        return (List<V>) Arrays.asList(result);
+    }
+
+    /**
+     * Moves every mapping into a new table of the given capacity at once.
+     *
+     * @param capacity the new number of buckets
+     */
+    @SuppressWarnings("unchecked")
+    private void growTo(int capacity) {
+        Bucket<K, V>[] previous = table;
+        table = new Bucket[capacity];
+        for (Bucket<K, V> bucket : previous) {
+            if (bucket != null) {
+                bucket.transferTo(table, hashing);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> Bucket<K, V>[] newGroup() {
+        return new Bucket[BATCH_GROUP];
+    }
+
+    /**
+     * Reads the bucket of every key in a group.
+     *
+     * @param h     the hashes of the batch
+     * @param base  the first key of the group
+     * @param end   one past the last key of the group
+     * @param group receives the bucket of each key
+     */
+    private void touchGroup(int[] h, int base, int end, Bucket<K, V>[] group) {
+        for (int i = base; i < end; i++) {
+            group[i - base] = table[hashing.indexFor(h[i], table.length)];
+        }
+    }
+
+    /**
+     * Returns a snapshot of the table's internals. The layout histogram counts
+     * the buckets of the current table by chain length, empty ones included;
+     * the lookup histogram counts the length of the chain each lookup
+     * searched. Lookup and resize figures are only kept when the table was
+     * constructed with stats recording on. In incremental mode a resize is
+     * timed up to the switch to the new table; the buckets moved afterwards
+     * are spread over later operations.
+     *
+     * @return the stats
+     */
+    public tableStats stats() {
+        long[] layout = new long[tableStats.HISTOGRAM_LENGTH];
+        for (Bucket<K, V> bucket : table) {
+            tableStats.count(layout, bucket == null ? 0 : bucket.size());
+        }
+        return new tableStats(statsName(), table.length, size, 0, layout, stats);
+    }
+
+    /** @return the name of the table in stats and JFR events */
+    private String statsName() {
+        return "separateChainingHashTable@" + Integer.toHexString(System.identityHashCode(this));
     }
 
     /** @return the number of key-value pairs in the hash table */
@@ -187,37 +921,224 @@ public class separateChainingHashTable<K, V> implements simpleMap<K, V> {
         return size == 0;
     }
 
-    /** @return a collection of all keys */
+    /** @return a live collection of all keys */
     @Override
     public Collection<K> keys() {
-        List<K> result = new ArrayList<>();
-        for (List<Entry<K, V>> bucket : table) {
-            for (Entry<K, V> entry : bucket) {
-                result.add(entry.key);
-            }
-        }
-        return result;
+        return slotSpliterator.view(this::size,
+                () -> spliterator((k, v) -> k, Spliterator.DISTINCT | Spliterator.NONNULL));
     }
 
-    /** @return a collection of all values */
+    /** @return a live collection of all values */
     @Override
     public Collection<V> values() {
-        List<V> result = new ArrayList<>();
-        for (List<Entry<K, V>> bucket : table) {
-            for (Entry<K, V> entry : bucket) {
-                result.add(entry.value);
-            }
-        }
-        return result;
+        return slotSpliterator.view(this::size, () -> spliterator((k, v) -> v, 0));
     }
 
-    /** @return a collection of all key-value entries */
+    /**
+     * Returns a live collection of all key-value entries. Each entry is
+     * created as the traversal reaches it; use {@link #forEach} to visit the
+     * mappings without creating any.
+     *
+     * @return a collection of all key-value entries
+     */
     @Override
     public Collection<simpleMap.Entry<K, V>> entries() {
-        List<simpleMap.Entry<K, V>> result = new ArrayList<>();
-        for (List<Entry<K, V>> bucket : table) {
-            result.addAll(bucket);
+        return slotSpliterator.view(this::size,
+                () -> spliterator(Entry::new, Spliterator.DISTINCT | Spliterator.NONNULL));
+    }
+
+    /**
+     * Performs an action for every mapping, including those still waiting in
+     * the old table during an incremental resize.
+     *
+     * @param action the action to perform for each mapping
+     */
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        forEachIn(table, action);
+        if (oldTable != null) {
+            forEachIn(oldTable, action);
+        }
+    }
+
+    private static <K, V> void forEachIn(Bucket<K, V>[] buckets, BiConsumer<? super K, ? super V> action) {
+        for (Bucket<K, V> bucket : buckets) {
+            if (bucket != null) {
+                bucket.forEach(action);
+            }
+        }
+    }
+
+    /**
+     * Creates a spliterator over the mappings of the table, one bucket per
+     * slot. The buckets of the old table during an incremental resize follow
+     * those of the current table.
+     *
+     * @param extract         maps a key and value to the element handed out
+     * @param characteristics the characteristics of the elements
+     * @return a spliterator that splits by bucket range
+     */
+    private <E> Spliterator<E> spliterator(BiFunction<K, V, E> extract, int characteristics) {
+        Bucket<K, V>[] current = table;
+        Bucket<K, V>[] old = oldTable;
+        int slots = current.length + (old == null ? 0 : old.length);
+        return new slotSpliterator<E>((slot, action) -> {
+            Bucket<K, V> bucket = slot < current.length ? current[slot] : old[slot - current.length];
+            if (bucket != null) {
+                bucket.forEach((k, v) -> action.accept(extract.apply(k, v)));
+            }
+        }, 0, slots, size, characteristics);
+    }
+
+    /**
+     * Writes the table layout to a file: the capacity and hasher fingerprint,
+     * then for every non-empty bucket its index and mappings, each as its
+     * hash, key and value. An incremental resize in progress is finished
+     * first. Key hash codes must be the same in the JVM that restores the
+     * snapshot, as they are for strings and boxed numbers, and a seeded hasher
+     * must be restored with the same secret for the saved layout to be reused.
+     *
+     * @param path       the file to write, replaced if it exists
+     * @param keyCodec   how to write keys
+     * @param valueCodec how to write non-null values
+     */
+    public void snapshot(Path path, codec<K> keyCodec, codec<V> valueCodec) throws IOException {
+        finishMigration();
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(path), SNAPSHOT_BUFFER))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(table.length);
+            out.writeInt(size);
+            out.writeLong(hashing.fingerprint());
+            for (int i = 0; i < table.length; i++) {
+                Bucket<K, V> bucket = table[i];
+                if (bucket != null) {
+                    out.writeInt(i);
+                    out.writeInt(bucket.size());
+                    bucket.writeTo(out, keyCodec, valueCodec);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes one mapping of a bucket.
+     */
+    private static <K, V> void writeMapping(DataOutput out, int hash, K key, V value, codec<K> keyCodec,
+            codec<V> valueCodec) throws IOException {
+        out.writeInt(hash);
+        keyCodec.write(out, key);
+        out.writeBoolean(value != null);
+        if (value != null) {
+            valueCodec.write(out, value);
+        }
+    }
+
+    /**
+     * Restores a table from a snapshot at its saved capacity, hashing keys with
+     * {@link hasher#MODULO}. If the snapshot was taken with the same hasher
+     * each bucket is rebuilt at its saved index with room for exactly its
+     * mappings, so no key is hashed or compared.
+     *
+     * @param path       the snapshot file
+     * @param keyCodec   how to read keys
+     * @param valueCodec how to read non-null values
+     * @return the restored table
+     */
+    public static <K, V> separateChainingHashTable<K, V> restore(Path path, codec<K> keyCodec,
+            codec<V> valueCodec) throws IOException {
+        return restore(path, keyCodec, valueCodec, -1, hasher.MODULO);
+    }
+
+    /**
+     * Restores a table from a snapshot with the given number of buckets,
+     * hashing keys with {@link hasher#MODULO}.
+     *
+     * @param path       the snapshot file
+     * @param keyCodec   how to read keys
+     * @param valueCodec how to read non-null values
+     * @param capacity   the number of buckets, or -1 for the saved capacity
+     * @return the restored table
+     * @see #restore(Path, codec, codec, int, hasher)
+     */
+    public static <K, V> separateChainingHashTable<K, V> restore(Path path, codec<K> keyCodec,
+            codec<V> valueCodec, int capacity) throws IOException {
+        return restore(path, keyCodec, valueCodec, capacity, hasher.MODULO);
+    }
+
+    /**
+     * Restores a table from a snapshot with the given number of buckets and
+     * hasher. If the snapshot was taken with the same hasher and the capacity
+     * matches the saved one, each bucket is rebuilt in place. Otherwise the
+     * table is sized once for every mapping, raised to stay under the load
+     * factor if needed, and the mappings are added without any key
+     * comparison: by their saved hashes if the hasher matches, or by hashing
+     * each key again if not.
+     * <p>
+     * The resize mode and stats recording are not saved, so the restored
+     * table always uses {@link resizeMode#FULL} and does not record stats.
+     *
+     * @param path       the snapshot file
+     * @param keyCodec   how to read keys
+     * @param valueCodec how to read non-null values
+     * @param capacity   the number of buckets, or -1 for the saved capacity
+     * @param hashing    how the restored table hashes keys
+     * @return the restored table
+     * @throws IOException if the file cannot be read, is not a snapshot or is
+     *                     corrupt
+     */
+    public static <K, V> separateChainingHashTable<K, V> restore(Path path, codec<K> keyCodec,
+            codec<V> valueCodec, int capacity, hasher hashing) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path), SNAPSHOT_BUFFER))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Not a separate chaining snapshot: " + path);
+            }
+            int savedCapacity = in.readInt();
+            int count = in.readInt();
+            if (savedCapacity <= 0 || count < 0) {
+                throw new IOException("Corrupt snapshot header: " + path);
+            }
+            boolean sameHasher = in.readLong() == hashing.fingerprint();
+
+            boolean sameLayout = sameHasher && (capacity < 0 || capacity == savedCapacity);
+            int newCapacity = sameLayout ? savedCapacity
+                    : Math.max(capacity < 0 ? savedCapacity : capacity, (int) Math.ceil(count / LOAD_FACTOR) + 1);
+            separateChainingHashTable<K, V> restored = new separateChainingHashTable<>(newCapacity,
+                    resizeMode.FULL, false, hashing);
+            for (int read = 0; read < count;) {
+                int index = in.readInt();
+                int bucketSize = in.readInt();
+                if (index < 0 || index >= savedCapacity || bucketSize <= 0 || bucketSize > count - read
+                        || (sameLayout && restored.table[index] != null)) {
+                    throw new IOException("Corrupt snapshot bucket " + index + ": " + path);
+                }
+                Bucket<K, V> bucket = sameLayout && bucketSize > 1 ? new ArrayBucket<>(bucketSize) : null;
+                for (int i = 0; i < bucketSize; i++) {
+                    int hash = in.readInt();
+                    if (hash < 0) {
+                        throw new IOException("Corrupt snapshot hash " + hash + ": " + path);
+                    }
+                    K key = keyCodec.read(in);
+                    V value = in.readBoolean() ? valueCodec.read(in) : null;
+                    if (!sameHasher) {
+                        hash = hashing.hash(key);
+                    }
+                    if (sameLayout) {
+                        bucket = bucket == null ? new SingleBucket<>(key, hash, value)
+                                : bucket.add(key, hash, value, hashing);
+                    } else {
+                        insert(restored.table, key, hash, value, hashing);
+                    }
+                }
+                if (sameLayout) {
+                    restored.table[index] = bucket;
+                }
+                read += bucketSize;
+            }
+            restored.size = count;
+            return restored;
         }
-        return result;
     }
-}
\ No newline at end of file
+}
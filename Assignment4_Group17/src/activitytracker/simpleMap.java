@@ -1,6 +1,9 @@
 package activitytracker;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.function.BiConsumer;
 
 /**
  * A simplified Map interface defining core operations for a key-value data
@@ -77,14 +80,75 @@ public interface simpleMap<K, V> {
     V remove(K k);
 
     /**
-     * Returns a {@link Collection} view of the keys contained in this map.
+     * Associates each key of a batch with the value at the same position, as
+     * if by calling {@link #put} for each in order.
+     * <p>
+     * The tables override the batch operations to hash every key up front and
+     * then work through the batch in small groups, reading the home slot or
+     * bucket of every key in a group before finishing any of them. Those reads
+     * do not depend on each other, so the CPU can have all of their cache
+     * misses in flight at once instead of taking them one after another.
+     * {@code putAll} also sizes the table once for the whole batch.
+     *
+     * @param keys   the keys
+     * @param values the values, one per key
+     * @throws IllegalArgumentException if the lists differ in length
+     */
+    default void putAll(List<? extends K> keys, List<? extends V> values) {
+        if (keys.size() != values.size()) {
+            throw new IllegalArgumentException(keys.size() + " keys but " + values.size() + " values");
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            put(keys.get(i), values.get(i));
+        }
+    }
+
+    /**
+     * Looks up every key of a batch, as if by calling {@link #get} for each.
+     * Tables override this to group the lookups as described on
+     * {@link #putAll}.
+     *
+     * @param keys the keys
+     * @return the value of each key in the same order, {@code null} where a key
+     *         is not found
+     */
+    default List<V> getAll(List<? extends K> keys) {
+        List<V> result = new ArrayList<>(keys.size());
+        for (K k : keys) {
+            result.add(get(k));
+        }
+        return result;
+    }
+
+    /**
+     * Removes every key of a batch, as if by calling {@link #remove} for each
+     * in order.
+     *
+     * @param keys the keys
+     * @return the value removed for each key in the same order, {@code null}
+     *         where a key was not present
+     */
+    default List<V> removeAll(List<? extends K> keys) {
+        List<V> result = new ArrayList<>(keys.size());
+        for (K k : keys) {
+            result.add(remove(k));
+        }
+        return result;
+    }
+
+    /**
+     * Returns a {@link Collection} view of the keys contained in this map. The
+     * view is backed by the map rather than copied from it, and its
+     * spliterator splits by slot range so parallel streams scale across cores.
+     * The map must not be modified while the view is traversed.
      *
      * @return a collection of keys
      */
     Collection<K> keys();
 
     /**
-     * Returns a {@link Collection} view of the values contained in this map.
+     * Returns a {@link Collection} view of the values contained in this map,
+     * backed by the map like {@link #keys()}.
      *
      * @return a collection of values
      */
@@ -92,9 +156,22 @@ public interface simpleMap<K, V> {
 
     /**
      * Returns a {@link Collection} view of the key-value entries contained in this
-     * map.
+     * map, backed by the map like {@link #keys()}.
      *
      * @return a collection of entries
      */
     Collection<Entry<K, V>> entries();
+
+    /**
+     * Performs an action for every key-value mapping in this map. Tables
+     * override this to walk their slots directly, without creating an entry
+     * per mapping. The map must not be modified during the traversal.
+     *
+     * @param action the action to perform for each mapping
+     */
+    default void forEach(BiConsumer<? super K, ? super V> action) {
+        for (Entry<K, V> entry : entries()) {
+            action.accept(entry.key(), entry.value());
+        }
+    }
 }
\ No newline at end of file
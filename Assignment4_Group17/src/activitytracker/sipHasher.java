@@ -0,0 +1,97 @@
+package activitytracker;
+
+/**
+ * The seeded {@link hasher}: SipHash-2-4 keyed with a 128-bit secret over the
+ * UTF-16 code units of character sequences, read four to a 64-bit word
+ * little-endian, so a string hashes as its UTF-16LE bytes would.
+ */
+final class sipHasher implements hasher {
+
+    private final long k0;
+    private final long k1;
+
+    /**
+     * @param k0 the first half of the secret
+     * @param k1 the second half of the secret
+     */
+    sipHasher(long k0, long k1) {
+        this.k0 = k0;
+        this.k1 = k1;
+    }
+
+    @Override
+    public int hash(Object key) {
+        if (key instanceof CharSequence text) {
+            long h = sipHash(text);
+            return (int) (h ^ (h >>> 32)) & 0x7FFFFFFF;
+        }
+        return hasher.fmix(key.hashCode() ^ (int) k0) & 0x7FFFFFFF;
+    }
+
+    @Override
+    public int indexFor(int hash, int capacity) {
+        return hash & (capacity - 1);
+    }
+
+    @Override
+    public int tableSize(int capacity) {
+        return hasher.powerOfTwoAtLeast(capacity);
+    }
+
+    /**
+     * Computes SipHash-2-4 of the UTF-16LE bytes of a character sequence.
+     *
+     * @param text the characters
+     * @return the 64-bit hash
+     */
+    long sipHash(CharSequence text) {
+        long[] v = {
+                k0 ^ 0x736F6D6570736575L,
+                k1 ^ 0x646F72616E646F6DL,
+                k0 ^ 0x6C7967656E657261L,
+                k1 ^ 0x7465646279746573L };
+
+        int length = text.length();
+        int end = length & ~3;
+        for (int i = 0; i < end; i += 4) {
+            compress(v, text.charAt(i)
+                    | (long) text.charAt(i + 1) << 16
+                    | (long) text.charAt(i + 2) << 32
+                    | (long) text.charAt(i + 3) << 48);
+        }
+
+        // The last block holds the remaining characters and the byte length
+        long m = (long) (length * 2) << 56;
+        for (int i = end; i < length; i++) {
+            m |= (long) text.charAt(i) << (16 * (i - end));
+        }
+        compress(v, m);
+
+        v[2] ^= 0xFF;
+        for (int round = 0; round < 4; round++) {
+            sipRound(v);
+        }
+        return v[0] ^ v[1] ^ v[2] ^ v[3];
+    }
+
+    /** Absorbs one 64-bit message word with two rounds. */
+    private static void compress(long[] v, long m) {
+        v[3] ^= m;
+        sipRound(v);
+        sipRound(v);
+        v[0] ^= m;
+    }
+
+    private static void sipRound(long[] v) {
+        v[0] += v[1];
+        v[1] = Long.rotateLeft(v[1], 13) ^ v[0];
+        v[0] = Long.rotateLeft(v[0], 32);
+        v[2] += v[3];
+        v[3] = Long.rotateLeft(v[3], 16) ^ v[2];
+        v[0] += v[3];
+        v[3] = Long.rotateLeft(v[3], 21) ^ v[0];
+        v[2] += v[1];
+        v[1] = Long.rotateLeft(v[1], 17) ^ v[2];
+        v[2] = Long.rotateLeft(v[2], 32);
+    }
+}
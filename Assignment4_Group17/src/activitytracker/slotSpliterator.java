@@ -0,0 +1,154 @@
+package activitytracker;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * A spliterator over the slots of a hash table that splits by slot range, so a
+ * parallel stream over a table hands each thread an equal share of the
+ * array. Slots are read in place through a {@link Slots} callback; nothing is
+ * copied. The tables build their live key, value and entry collections from
+ * it with {@link #view}.
+ *
+ * @param <E> the type of elements
+ */
+final class slotSpliterator<E> implements Spliterator<E> {
+
+    /**
+     * Hands the elements stored in one slot of a table to an action.
+     *
+     * @param <E> the type of elements
+     */
+    @FunctionalInterface
+    interface Slots<E> {
+        /**
+         * @param slot   the slot index
+         * @param action the action to run for each element in the slot, if any
+         */
+        void visit(int slot, Consumer<? super E> action);
+    }
+
+    private final Slots<E> slots;
+    private final int characteristics;
+    private int index;
+    private final int fence;
+    private long estimate;
+
+    // Elements of the last visited slot not yet handed out by tryAdvance
+    private List<E> pending;
+    private Consumer<E> collector;
+    private int pendingIndex;
+
+    /**
+     * Constructs a spliterator over slots {@code [index, fence)}.
+     *
+     * @param slots           reads the elements of a slot
+     * @param index           the first slot
+     * @param fence           one past the last slot
+     * @param estimate        the expected number of elements in the range
+     * @param characteristics the characteristics of the elements
+     */
+    slotSpliterator(Slots<E> slots, int index, int fence, long estimate, int characteristics) {
+        this.slots = slots;
+        this.index = index;
+        this.fence = fence;
+        this.estimate = estimate;
+        this.characteristics = characteristics;
+    }
+
+    /**
+     * Returns a live, read-only collection backed by a table. Every traversal
+     * starts a new spliterator, so no elements are copied and a full scan
+     * allocates only what the table has to build per element. Unless the table
+     * documents otherwise, it must not be modified during a traversal.
+     *
+     * @param size         the current number of elements
+     * @param spliterators creates a spliterator over the whole table
+     * @return the collection view
+     */
+    static <E> Collection<E> view(IntSupplier size, Supplier<Spliterator<E>> spliterators) {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<E> iterator() {
+                return Spliterators.iterator(spliterators.get());
+            }
+
+            @Override
+            public Spliterator<E> spliterator() {
+                return spliterators.get();
+            }
+
+            @Override
+            public void forEach(Consumer<? super E> action) {
+                spliterators.get().forEachRemaining(action);
+            }
+
+            @Override
+            public int size() {
+                return size.getAsInt();
+            }
+        };
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super E> action) {
+        if (pending == null) {
+            pending = new ArrayList<>();
+            collector = pending::add;
+        }
+        while (pendingIndex == pending.size()) {
+            if (index >= fence) {
+                return false;
+            }
+            pending.clear();
+            pendingIndex = 0;
+            slots.visit(index++, collector);
+        }
+        action.accept(pending.get(pendingIndex++));
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super E> action) {
+        if (pending != null) {
+            while (pendingIndex < pending.size()) {
+                action.accept(pending.get(pendingIndex++));
+            }
+        }
+        int i = index;
+        index = fence;
+        for (; i < fence; i++) {
+            slots.visit(i, action);
+        }
+    }
+
+    @Override
+    public Spliterator<E> trySplit() {
+        int lo = index, mid = (lo + fence) >>> 1;
+        // Elements left over from tryAdvance come before any prefix we could split off
+        if (lo >= mid || (pending != null && pendingIndex < pending.size())) {
+            return null;
+        }
+        index = mid;
+        estimate >>>= 1;
+        return new slotSpliterator<>(slots, lo, mid, estimate, characteristics);
+    }
+
+    @Override
+    public long estimateSize() {
+        return estimate;
+    }
+
+    @Override
+    public int characteristics() {
+        return characteristics;
+    }
+}
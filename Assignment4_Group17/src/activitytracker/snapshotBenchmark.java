@@ -0,0 +1,126 @@
+package activitytracker;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * A benchmark for warming a table up from a snapshot against repopulating it
+ * with one {@code put} per key, restoring both at the saved capacity and at a
+ * different one.
+ */
+public class snapshotBenchmark {
+
+    private static final int[] SAMPLE_SIZES = { 10_000, 100_000, 1_000_000 };
+
+    private static List<String> generateKeys(int n) {
+        List<String> keys = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            keys.add(UUID.randomUUID().toString());
+        }
+        return keys;
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.out.println("Map,SampleSize,FileSize(MB),PutTime(ms),SnapshotTime(ms),RestoreTime(ms),"
+                + "ResizedRestoreTime(ms),RestoreVsPut");
+        Path file = Files.createTempFile("snapshot", ".bin");
+        try {
+            for (int size : SAMPLE_SIZES) {
+                List<String> keys = generateKeys(size);
+                benchmarkLinearProbing(keys, file, false); // Warm up
+                benchmarkLinearProbing(keys, file, true);
+                benchmarkSeparateChaining(keys, file, false); // Warm up
+                benchmarkSeparateChaining(keys, file, true);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void benchmarkLinearProbing(List<String> keys, Path file, boolean report)
+            throws IOException {
+        long start = System.nanoTime();
+        linearProbingHashTable<String, Integer> map = new linearProbingHashTable<>(16);
+        for (int i = 0; i < keys.size(); i++) {
+            map.put(keys.get(i), i);
+        }
+        long putTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        map.snapshot(file, codec.STRING, codec.INTEGER);
+        long snapshotTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        linearProbingHashTable<String, Integer> restored = linearProbingHashTable.restore(file, codec.STRING,
+                codec.INTEGER);
+        long restoreTime = System.nanoTime() - start;
+        check(restored, keys);
+
+        start = System.nanoTime();
+        restored = linearProbingHashTable.restore(file, codec.STRING, codec.INTEGER, 16);
+        long resizedTime = System.nanoTime() - start;
+        check(restored, keys);
+
+        if (report) {
+            print("LinearProbing", keys.size(), file, putTime, snapshotTime, restoreTime, resizedTime);
+        }
+    }
+
+    private static void benchmarkSeparateChaining(List<String> keys, Path file, boolean report)
+            throws IOException {
+        long start = System.nanoTime();
+        separateChainingHashTable<String, Integer> map = new separateChainingHashTable<>(16);
+        for (int i = 0; i < keys.size(); i++) {
+            map.put(keys.get(i), i);
+        }
+        long putTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        map.snapshot(file, codec.STRING, codec.INTEGER);
+        long snapshotTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        separateChainingHashTable<String, Integer> restored = separateChainingHashTable.restore(file, codec.STRING,
+                codec.INTEGER);
+        long restoreTime = System.nanoTime() - start;
+        check(restored, keys);
+
+        start = System.nanoTime();
+        restored = separateChainingHashTable.restore(file, codec.STRING, codec.INTEGER, 16);
+        long resizedTime = System.nanoTime() - start;
+        check(restored, keys);
+
+        if (report) {
+            print("SeparateChaining", keys.size(), file, putTime, snapshotTime, restoreTime, resizedTime);
+        }
+    }
+
+    private static void check(simpleMap<String, Integer> restored, List<String> keys) {
+        if (restored.size() != keys.size()) {
+            throw new RuntimeException("Restored size " + restored.size() + " != " + keys.size());
+        }
+        for (int i = 0; i < keys.size(); i += 97) {
+            Integer value = restored.get(keys.get(i));
+            if (value == null || value != i) {
+                throw new RuntimeException("Restored table lost key: " + keys.get(i));
+            }
+        }
+    }
+
+    private static void print(String name, int size, Path file, long putTime, long snapshotTime, long restoreTime,
+            long resizedTime) throws IOException {
+        System.out.printf(Locale.US, "%s,%d,%.1f,%.3f,%.3f,%.3f,%.3f,%.2f\n",
+                name, size,
+                Files.size(file) / 1e6,
+                putTime / 1e6,
+                snapshotTime / 1e6,
+                restoreTime / 1e6,
+                resizedTime / 1e6,
+                (double) putTime / restoreTime);
+    }
+}
@@ -0,0 +1,89 @@
+package activitytracker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * A benchmark for the cost of stats recording: the same inserts and lookups
+ * run on tables with recording off and on, and the stats gathered are
+ * printed afterwards.
+ */
+public class statsBenchmark {
+
+    private static final int KEY_COUNT = 1_000_000;
+
+    private static List<String> generateKeys(int n) {
+        List<String> keys = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            keys.add(UUID.randomUUID().toString());
+        }
+        return keys;
+    }
+
+    public static void main(String[] args) {
+        List<String> keys = generateKeys(KEY_COUNT);
+        List<String> missing = generateKeys(KEY_COUNT / 10);
+
+        List<String> names = List.of("LinearProbing", "RobinHood", "SeparateChaining");
+        List<Function<Boolean, simpleMap<String, Integer>>> factories = List.of(
+                record -> new linearProbingHashTable<>(16, 0.75, linearProbingHashTable.Probing.LINEAR,
+                        resizeMode.FULL, record),
+                record -> new linearProbingHashTable<>(16, 0.9, linearProbingHashTable.Probing.ROBIN_HOOD,
+                        resizeMode.FULL, record),
+                record -> new separateChainingHashTable<>(16, resizeMode.FULL, record));
+
+        System.out.println("Map,Stats,InsertTime(ms),LookupTime(ms),InsertOverhead,LookupOverhead");
+        List<tableStats> gathered = new ArrayList<>();
+        for (int m = 0; m < names.size(); m++) {
+            run(factories.get(m).apply(false), keys, missing); // Warm up
+            run(factories.get(m).apply(true), keys, missing);
+            long[] off = run(factories.get(m).apply(false), keys, missing);
+            simpleMap<String, Integer> recorded = factories.get(m).apply(true);
+            long[] on = run(recorded, keys, missing);
+            System.out.printf(Locale.US, "%s,off,%.3f,%.3f,,\n", names.get(m), off[0] / 1e6, off[1] / 1e6);
+            System.out.printf(Locale.US, "%s,on,%.3f,%.3f,%.2f,%.2f\n", names.get(m), on[0] / 1e6, on[1] / 1e6,
+                    (double) on[0] / off[0], (double) on[1] / off[1]);
+            gathered.add(recorded instanceof linearProbingHashTable<String, Integer> table ? table.stats()
+                    : ((separateChainingHashTable<String, Integer>) recorded).stats());
+        }
+
+        System.out.println();
+        for (tableStats stats : gathered) {
+            System.out.println(stats);
+        }
+    }
+
+    /**
+     * Inserts every key, then looks up every key and every missing key.
+     *
+     * @return the insert and lookup times in nanoseconds
+     */
+    private static long[] run(simpleMap<String, Integer> map, List<String> keys, List<String> missing) {
+        long start = System.nanoTime();
+        for (int i = 0; i < keys.size(); i++) {
+            map.put(keys.get(i), i);
+        }
+        long insertTime = System.nanoTime() - start;
+
+        long found = 0;
+        start = System.nanoTime();
+        for (String k : keys) {
+            if (map.get(k) != null) {
+                found++;
+            }
+        }
+        for (String k : missing) {
+            if (map.get(k) != null) {
+                found++;
+            }
+        }
+        long lookupTime = System.nanoTime() - start;
+        if (found != keys.size()) {
+            throw new IllegalStateException("Found " + found + " of " + keys.size() + " keys");
+        }
+        return new long[] { insertTime, lookupTime };
+    }
+}
@@ -0,0 +1,30 @@
+package activitytracker;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A JFR event for one resize or rehash of a hash table recording stats,
+ * spanning the time the resizing operation was blocked.
+ */
+@Name("activitytracker.TableResize")
+@Label("Hash Table Resize")
+@Category({ "Activity Tracker", "Hash Tables" })
+@Description("A hash table was resized or rehashed")
+final class tableResizeEvent extends Event {
+
+    @Label("Table")
+    String table;
+
+    @Label("From Capacity")
+    int fromCapacity;
+
+    @Label("To Capacity")
+    int toCapacity;
+
+    @Label("Size")
+    int size;
+}
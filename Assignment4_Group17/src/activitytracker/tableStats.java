@@ -0,0 +1,290 @@
+package activitytracker;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * A snapshot of the internals of a hash table, returned by
+ * {@code linearProbingHashTable.stats()} and
+ * {@code separateChainingHashTable.stats()}.
+ * <p>
+ * The layout figures (capacity, size, tombstones and the layout histogram)
+ * are read from the table when the snapshot is taken and are always
+ * available. The operation counters (hits, misses, lookup lengths and
+ * resizes) are only kept by tables constructed with stats recording on, and
+ * are zero otherwise. Taking a snapshot also emits a {@link tableStatsEvent}
+ * when a JFR recording has it enabled.
+ * <p>
+ * Histograms count by length: slot {@code i} holds the number of lookups, or
+ * of entries or buckets, with length {@code i}, and the last slot also counts
+ * everything longer.
+ */
+public final class tableStats {
+
+    /** The number of slots in every histogram. */
+    public static final int HISTOGRAM_LENGTH = 32;
+
+    private final String table;
+    private final int capacity;
+    private final int size;
+    private final int tombstones;
+    private final long hits;
+    private final long misses;
+    private final long resizeCount;
+    private final long resizeNanos;
+    private final long maxResizeNanos;
+    private final long[] lookupHistogram;
+    private final long[] layoutHistogram;
+
+    /**
+     * Constructs a snapshot and emits it as a JFR event.
+     *
+     * @param table           the name of the table in events
+     * @param capacity        the number of slots or buckets
+     * @param size            the number of mappings
+     * @param tombstones      the number of deleted slots still in the table
+     * @param layoutHistogram the displacement or chain length histogram
+     * @param recorder        the operation counters, or null if not recorded
+     */
+    tableStats(String table, int capacity, int size, int tombstones, long[] layoutHistogram, Recorder recorder) {
+        this.table = table;
+        this.capacity = capacity;
+        this.size = size;
+        this.tombstones = tombstones;
+        this.layoutHistogram = layoutHistogram;
+        if (recorder != null) {
+            hits = recorder.hits;
+            misses = recorder.misses;
+            resizeCount = recorder.resizeCount;
+            resizeNanos = recorder.resizeNanos;
+            maxResizeNanos = recorder.maxResizeNanos;
+            lookupHistogram = recorder.lookups.clone();
+        } else {
+            hits = misses = resizeCount = resizeNanos = maxResizeNanos = 0;
+            lookupHistogram = new long[HISTOGRAM_LENGTH];
+        }
+
+        tableStatsEvent event = new tableStatsEvent();
+        if (event.shouldCommit()) {
+            event.table = table;
+            event.capacity = capacity;
+            event.size = size;
+            event.loadFactor = getLoadFactor();
+            event.tombstones = tombstones;
+            event.hits = hits;
+            event.misses = misses;
+            event.resizeCount = resizeCount;
+            event.resizeNanos = resizeNanos;
+            event.p99LookupLength = getLookupPercentile(0.99);
+            event.p99LayoutLength = percentile(layoutHistogram, 0.99);
+            event.commit();
+        }
+    }
+
+    /**
+     * Adds a length to a histogram, folding long ones into the last slot.
+     *
+     * @param histogram the histogram
+     * @param length    the length to count
+     */
+    static void count(long[] histogram, int length) {
+        histogram[Math.min(length, HISTOGRAM_LENGTH - 1)]++;
+    }
+
+    private static int percentile(long[] histogram, double percentile) {
+        long total = 0;
+        for (long count : histogram) {
+            total += count;
+        }
+        long target = (long) Math.ceil(percentile * total);
+        long seen = 0;
+        for (int length = 0; length < histogram.length; length++) {
+            seen += histogram[length];
+            if (seen >= target) {
+                return length;
+            }
+        }
+        return histogram.length - 1;
+    }
+
+    /** @return the number of slots or buckets */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /** @return the number of mappings */
+    public int getSize() {
+        return size;
+    }
+
+    /** @return the number of mappings per slot or bucket */
+    public double getLoadFactor() {
+        return capacity == 0 ? 0.0 : (double) size / capacity;
+    }
+
+    /** @return the number of deleted slots still in the table */
+    public int getTombstones() {
+        return tombstones;
+    }
+
+    /** @return the number of lookups that found their key */
+    public long getHits() {
+        return hits;
+    }
+
+    /** @return the number of lookups that did not find their key */
+    public long getMisses() {
+        return misses;
+    }
+
+    /** @return the fraction of lookups that found their key, or 0 if none ran */
+    public double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    /** @return the number of times the table was resized or rehashed */
+    public long getResizeCount() {
+        return resizeCount;
+    }
+
+    /** @return the total time spent resizing, in nanoseconds */
+    public long getResizeNanos() {
+        return resizeNanos;
+    }
+
+    /** @return the longest single resize, in nanoseconds */
+    public long getMaxResizeNanos() {
+        return maxResizeNanos;
+    }
+
+    /**
+     * Returns how many slots each lookup probed, or for a chaining table how
+     * long the chain it searched was.
+     *
+     * @return a copy of the lookup length histogram
+     */
+    public long[] getLookupHistogram() {
+        return lookupHistogram.clone();
+    }
+
+    /**
+     * Returns how far each entry sits from its home slot, or for a chaining
+     * table how many buckets hold each chain length.
+     *
+     * @return a copy of the layout histogram
+     */
+    public long[] getLayoutHistogram() {
+        return layoutHistogram.clone();
+    }
+
+    /**
+     * @param percentile a fraction between 0 and 1
+     * @return the lookup length below which that fraction of lookups fall
+     */
+    public int getLookupPercentile(double percentile) {
+        return percentile(lookupHistogram, percentile);
+    }
+
+    /**
+     * @param percentile a fraction between 0 and 1
+     * @return the layout length below which that fraction of entries or
+     *         buckets fall
+     */
+    public int getLayoutPercentile(double percentile) {
+        return percentile(layoutHistogram, percentile);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US,
+                "%s[capacity=%d, size=%d, load=%.3f, tombstones=%d, hits=%d, misses=%d, resizes=%d, "
+                        + "resizeTime=%.3fms, maxResize=%.3fms, p99Lookup=%d, lookups=%s, layout=%s]",
+                table, capacity, size, getLoadFactor(), tombstones, hits, misses, resizeCount,
+                resizeNanos / 1e6, maxResizeNanos / 1e6, getLookupPercentile(0.99),
+                trimmed(lookupHistogram), trimmed(layoutHistogram));
+    }
+
+    private static String trimmed(long[] histogram) {
+        int end = histogram.length;
+        while (end > 1 && histogram[end - 1] == 0) {
+            end--;
+        }
+        return Arrays.toString(Arrays.copyOf(histogram, end));
+    }
+
+    /**
+     * The operation counters of one table. A table only creates a recorder
+     * when stats recording is switched on, so a table without one pays a
+     * single null check per operation. Like the tables it is not
+     * thread-safe.
+     */
+    static final class Recorder {
+        private final String table;
+        long hits;
+        long misses;
+        long resizeCount;
+        long resizeNanos;
+        long maxResizeNanos;
+        final long[] lookups = new long[HISTOGRAM_LENGTH];
+
+        private tableResizeEvent resizeEvent;
+        private long resizeStart;
+
+        /**
+         * @param table the name of the table in events
+         */
+        Recorder(String table) {
+            this.table = table;
+        }
+
+        /**
+         * Counts a lookup.
+         *
+         * @param length the number of slots probed or the chain length searched
+         * @param hit    whether the key was found
+         */
+        void recordLookup(int length, boolean hit) {
+            count(lookups, length);
+            if (hit) {
+                hits++;
+            } else {
+                misses++;
+            }
+        }
+
+        /**
+         * Marks the start of a resize.
+         */
+        void beginResize() {
+            resizeEvent = new tableResizeEvent();
+            resizeEvent.begin();
+            resizeStart = System.nanoTime();
+        }
+
+        /**
+         * Marks the end of the resize started by {@link #beginResize()} and
+         * emits it as a JFR event.
+         *
+         * @param fromCapacity the capacity before the resize
+         * @param toCapacity   the capacity after it
+         * @param size         the number of mappings
+         */
+        void endResize(int fromCapacity, int toCapacity, int size) {
+            long nanos = System.nanoTime() - resizeStart;
+            resizeCount++;
+            resizeNanos += nanos;
+            maxResizeNanos = Math.max(maxResizeNanos, nanos);
+
+            resizeEvent.end();
+            if (resizeEvent.shouldCommit()) {
+                resizeEvent.table = table;
+                resizeEvent.fromCapacity = fromCapacity;
+                resizeEvent.toCapacity = toCapacity;
+                resizeEvent.size = size;
+                resizeEvent.commit();
+            }
+            resizeEvent = null;
+        }
+    }
+}
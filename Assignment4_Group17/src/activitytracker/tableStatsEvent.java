@@ -0,0 +1,54 @@
+package activitytracker;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A JFR event holding a {@link tableStats} snapshot, emitted each time one is
+ * taken, so latency spikes in a recording can be lined up with the state of
+ * the table.
+ */
+@Name("activitytracker.TableStats")
+@Label("Hash Table Stats")
+@Category({ "Activity Tracker", "Hash Tables" })
+@Description("A snapshot of the internals of a hash table")
+final class tableStatsEvent extends Event {
+
+    @Label("Table")
+    String table;
+
+    @Label("Capacity")
+    int capacity;
+
+    @Label("Size")
+    int size;
+
+    @Label("Load Factor")
+    double loadFactor;
+
+    @Label("Tombstones")
+    int tombstones;
+
+    @Label("Hits")
+    long hits;
+
+    @Label("Misses")
+    long misses;
+
+    @Label("Resize Count")
+    long resizeCount;
+
+    @Label("Total Resize Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long resizeNanos;
+
+    @Label("p99 Lookup Length")
+    int p99LookupLength;
+
+    @Label("p99 Layout Length")
+    int p99LayoutLength;
+}
@@ -0,0 +1,90 @@
+package activitytracker;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Draws ranks in {@code [0, n)} following a Zipf distribution, where rank 0 is
+ * the most popular. Uses the constant-time method of Gray et al. ("Quickly
+ * Generating Billion-Record Synthetic Databases"), so only the zeta constant
+ * costs O(n), once, at construction.
+ * <p>
+ * The generator holds no random state of its own, so one instance can be
+ * shared between threads that each bring their own {@link RandomGenerator}.
+ */
+public class zipfGenerator {
+
+    /** The skew used by most published key-value store workloads. */
+    public static final double DEFAULT_THETA = 0.99;
+
+    private final int n;
+    private final double theta;
+    private final double alpha;
+    private final double zetaN;
+    private final double eta;
+
+    /**
+     * Constructs a generator over {@code n} items with the default skew.
+     *
+     * @param n the number of items
+     */
+    public zipfGenerator(int n) {
+        this(n, DEFAULT_THETA);
+    }
+
+    /**
+     * Constructs a generator over {@code n} items.
+     *
+     * @param n     the number of items
+     * @param theta the skew, between 0 (uniform) and 1 exclusive
+     */
+    public zipfGenerator(int n, double theta) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("Item count must be positive");
+        }
+        if (theta <= 0 || theta >= 1) {
+            throw new IllegalArgumentException("Theta must be between 0 and 1");
+        }
+        this.n = n;
+        this.theta = theta;
+        this.alpha = 1.0 / (1.0 - theta);
+        this.zetaN = zeta(n, theta);
+        double zeta2 = zeta(2, theta);
+        this.eta = (1 - Math.pow(2.0 / n, 1 - theta)) / (1 - zeta2 / zetaN);
+    }
+
+    /**
+     * Computes the generalised harmonic number {@code sum(1 / i^theta)} for
+     * {@code i} in {@code [1, n]}.
+     */
+    private static double zeta(int n, double theta) {
+        double sum = 0;
+        for (int i = 1; i <= n; i++) {
+            sum += 1.0 / Math.pow(i, theta);
+        }
+        return sum;
+    }
+
+    /**
+     * Draws the next rank.
+     *
+     * @param random the source of randomness
+     * @return a rank in {@code [0, n)}
+     */
+    public int next(RandomGenerator random) {
+        double u = random.nextDouble();
+        double uz = u * zetaN;
+        if (uz < 1.0) {
+            return 0;
+        }
+        if (uz < 1.0 + Math.pow(0.5, theta)) {
+            return Math.min(1, n - 1);
+        }
+        int rank = (int) (n * Math.pow(eta * u - eta + 1, alpha));
+        return Math.min(rank, n - 1);
+    }
+
+    /** @return the number of items */
+    public int size() {
+        return n;
+    }
+}
@@ -5,4 +5,6 @@
  * 
  */
 module Assignment4_Group17 {
+    requires jdk.jfr;
+    requires jdk.management;
 }
\ No newline at end of file